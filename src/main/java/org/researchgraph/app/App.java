@@ -1,24 +1,55 @@
 package org.researchgraph.app;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
 
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.commons.lang.StringUtils;
 import org.researchgraph.configuration.Properties;
+import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.RateLimiter;
+import org.researchgraph.resolver.CacheReindexer;
+import org.researchgraph.resolver.ConnectionPool;
+import org.researchgraph.resolver.JsonLinesSink;
+import org.researchgraph.resolver.MySqlSink;
+import org.researchgraph.resolver.PipeResolver;
+import org.researchgraph.resolver.ResolutionSink;
 import org.researchgraph.resolver.Resolver;
+import org.researchgraph.resolver.SnapshotIngester;
+import org.researchgraph.resolver.TsvSink;
+import org.researchgraph.resolver.WriteMode;
 
 public class App {
 	private static final String CROSSREF_VERSION_FILE = "crossref";
+	private static final String CROSSREF_CHECKPOINT_FILE = "crossref.checkpoint";
+	// time the shutdown hook waits for the sink to be flushed and closed, after the shutdown timeout
+	private static final long CLOSE_TIMEOUT = 60000;
 	private static final String DATE_FORMAT = "yyyy-MM-dd";
+	
+	// stdout of the process, System.out is redirected to stderr while results are written to stdout
+	private static PrintStream stdout = System.out;
 		
 	public static void main(String[] args) {
 		try {
 			Class.forName("com.mysql.jdbc.Driver").newInstance();
 			
 			Configuration properties = Properties.fromArgs(args);
+			
+	        String mode = properties.getString(Properties.PROPERTY_MODE);
+	        redirectStdout(properties);
 	        
 	        String neo4jFolder = properties.getString(Properties.PROPERTY_NEO4J_FOLDER);
 	        if (StringUtils.isEmpty(neo4jFolder))
@@ -28,19 +59,20 @@ public class App {
 	        String crossrefCache = properties.getString(Properties.PROPERTY_CROSSREF_CACHE);
 	        System.out.println("CrossRef: " + crossrefCache);
 	        
-	        String versionFolder = properties.getString(Properties.PROPERTY_VERSIONS_FOLDER);
-	        String mysqlHost = properties.getString(Properties.PROPERTY_MYSQL_HOST);
-	        int mysqlPort = properties.getInt(Properties.DEFAULT_MYSQL_PORT);
-	        String mysqlUser = properties.getString(Properties.PROPERTY_MYSQL_USER);
-	        String mysqlPassword = properties.getString(Properties.PROPERTY_MYSQL_PASSWORD);
-	        String mysqlDatabase = properties.getString(Properties.PROPERTY_MYSQL_DATABASE);
-	        
-	        try (Resolver resolver = new Resolver(crossrefCache, mysqlHost, mysqlPort, mysqlUser, mysqlPassword, mysqlDatabase)) {
-	        	resolver.resolveDOI();
-	        }
-	        
-	        Files.write(Paths.get(versionFolder, CROSSREF_VERSION_FILE), 
-	        		new SimpleDateFormat(DATE_FORMAT).format(new Date()).getBytes());
+	        if (Properties.MODE_RESOLVE.equals(mode)) 
+	        	resolve(properties, crossrefCache);
+	        else if (Properties.MODE_REVALIDATE.equals(mode)) 
+	        	revalidate(properties, crossrefCache);
+	        else if (Properties.MODE_INGEST.equals(mode))
+	        	ingest(properties, crossrefCache);
+	        else if (Properties.MODE_REINDEX.equals(mode))
+	        	reindex(properties, crossrefCache);
+	        else if (Properties.MODE_DAEMON.equals(mode))
+	        	daemon(properties, crossrefCache);
+	        else if (Properties.MODE_PIPE.equals(mode))
+	        	pipe(properties, crossrefCache);
+	        else 
+	        	throw new IllegalArgumentException("Invalid mode: " + mode);
 	        
 		} catch (Exception e) {
             e.printStackTrace();
@@ -48,4 +80,310 @@ public class App {
             System.exit(1);
 		}       
 	}
+	
+	/**
+	 * Redirect System.out to stderr if results are written to stdout, so messages and 
+	 * progress output do not get mixed into the JSON lines
+	 * @param properties Configuration
+	 */
+	static void redirectStdout(Configuration properties) {
+		stdout = System.out;
+		if (isStdoutSink(properties))
+			System.setOut(System.err);
+	}
+	
+	/**
+	 * @return true if results are written to stdout, by pipe mode or by the json sink 
+	 */
+	private static boolean isStdoutSink(Configuration properties) {
+		String output = properties.getString(Properties.PROPERTY_SINK_OUTPUT);
+		if (!StringUtils.isEmpty(output) && !Properties.OUTPUT_STDOUT.equals(output))
+			return false;
+		
+		return Properties.MODE_PIPE.equals(properties.getString(Properties.PROPERTY_MODE)) 
+				|| Properties.SINK_JSON.equals(properties.getString(Properties.PROPERTY_SINK));
+	}
+	
+	private static void resolve(Configuration properties, String crossrefCache) throws Exception {
+		String versionFolder = properties.getString(Properties.PROPERTY_VERSIONS_FOLDER);
+		
+		final CountDownLatch stop = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+        
+        try (BasicDataSource dataSource = createDataSource(properties);
+        		ResolutionSink sink = createSink(properties, dataSource);
+        		Resolver resolver = new Resolver(crossrefCache, dataSource, sink)) {
+        	configure(resolver, properties);
+        	addShutdownHook(resolver, stop, finished);
+        	
+        	resolver.resolveDOI();
+        	
+        	// an interrupted run does not update the version
+        	if (resolver.isStopped())
+        		writeCheckpoint(versionFolder, resolver);
+        	else
+        		writeVersion(versionFolder);
+        } finally {
+        	finished.countDown();
+        }
+	}
+	
+	/**
+	 * Resolve new rows in cycles until the process is signalled to stop. The interval between cycles 
+	 * is reset after every cycle which has found DOI's and doubles after every idle cycle, up to the maximum.
+	 */
+	private static void daemon(Configuration properties, String crossrefCache) throws Exception {
+		String versionFolder = properties.getString(Properties.PROPERTY_VERSIONS_FOLDER);
+		long minInterval = TimeUnit.SECONDS.toMillis(properties.getLong(Properties.PROPERTY_DAEMON_INTERVAL));
+		long maxInterval = Math.max(minInterval, TimeUnit.SECONDS.toMillis(properties.getLong(Properties.PROPERTY_DAEMON_MAX_INTERVAL)));
+		
+		final CountDownLatch stop = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+		
+		try (BasicDataSource dataSource = createDataSource(properties);
+        		ResolutionSink sink = createSink(properties, dataSource);
+        		Resolver resolver = new Resolver(crossrefCache, dataSource, sink)) {
+			configure(resolver, properties);
+			addShutdownHook(resolver, stop, finished);
+			
+			long interval = minInterval;
+			for (int cycle = 1; !resolver.isStopped(); ++cycle) {
+				System.out.println("Daemon cycle " + cycle);
+				
+				// a failed cycle keeps the watermark, its rows are read again after backing off, as an idle one
+				int dois = 0;
+				try {
+					dois = resolver.resolveDOI();
+					writeVersion(versionFolder);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				
+				interval = dois > 0 ? minInterval : Math.min(interval * 2, maxInterval);
+				System.out.println("Next cycle in " + TimeUnit.MILLISECONDS.toSeconds(interval) + " s");
+				
+				if (stop.await(interval, TimeUnit.MILLISECONDS))
+					break;
+			}
+			
+			writeCheckpoint(versionFolder, resolver);
+		} finally {
+			System.out.println("Daemon stopped");
+			finished.countDown();
+		}
+	}
+	
+	/**
+	 * Resolve DOI's read as lines from stdin or a file and stream results as JSON lines, without a database
+	 */
+	private static void pipe(Configuration properties, String crossrefCache) throws Exception {
+		String input = properties.getString(Properties.PROPERTY_PIPE_INPUT);
+		String output = properties.getString(Properties.PROPERTY_SINK_OUTPUT);
+		
+		String order = properties.getString(Properties.PROPERTY_PIPE_ORDER);
+		boolean ordered = Properties.ORDER_INPUT.equals(order);
+		if (!ordered && !Properties.ORDER_COMPLETION.equals(order))
+			throw new IllegalArgumentException("Invalid pipe order: " + order);
+		
+		CrossRef crossref = new CrossRef(crossrefCache);
+		crossref.setCacheTtl(getCacheTtl(properties));
+		crossref.setProjectionEnabled(properties.getBoolean(Properties.PROPERTY_PROJECTION));
+		crossref.setWorksLimiter(new RateLimiter(properties.getDouble(Properties.PROPERTY_CROSSREF_RATE)));
+		crossref.setAuthorityLimiter(new RateLimiter(properties.getDouble(Properties.PROPERTY_AUTHORITY_RATE)));
+		
+		int batchSize = properties.getInt(Properties.PROPERTY_BATCH_SIZE);
+		try (BufferedReader reader = StringUtils.isEmpty(input) || Properties.INPUT_STDIN.equals(input) 
+					? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+					: Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+				JsonLinesSink sink = StringUtils.isEmpty(output) || Properties.OUTPUT_STDOUT.equals(output)
+					? new JsonLinesSink(stdout, false, batchSize)
+					: new JsonLinesSink(Files.newOutputStream(Paths.get(output)), true, batchSize);
+				PipeResolver resolver = new PipeResolver(crossref, sink, getThreads(properties), 
+						properties.getInt(Properties.PROPERTY_PIPE_WINDOW), ordered)) {
+			resolver.setWorksFirstThreshold(properties.getDouble(Properties.PROPERTY_WORKS_FIRST));
+			resolver.resolve(reader);
+		}
+	}
+	
+	/**
+	 * Stop the resolver on signal and wait until it has drained, flushed and closed everything
+	 * @param resolver Resolver
+	 * @param stop latch released when the process is signalled to stop
+	 * @param finished latch released by the resolving thread once everything is closed
+	 */
+	private static void addShutdownHook(Resolver resolver, CountDownLatch stop, CountDownLatch finished) {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			if (0 == finished.getCount())
+				return;
+			
+			System.out.println("Stopping, " + TimeUnit.MILLISECONDS.toSeconds(resolver.getShutdownTimeout()) 
+					+ " s to finish dispatched DOI's");
+			resolver.stop();
+			stop.countDown();
+			try {
+				if (!finished.await(resolver.getShutdownTimeout() + CLOSE_TIMEOUT, TimeUnit.MILLISECONDS))
+					System.out.println("Unable to close resolver in time, exiting");
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}));
+	}
+	
+	private static void configure(Resolver resolver, Configuration properties) {
+		resolver.getCrossRef().setCacheTtl(getCacheTtl(properties));
+		resolver.getCrossRef().setProjectionEnabled(properties.getBoolean(Properties.PROPERTY_PROJECTION));
+		resolver.setHarvestThreshold(properties.getLong(Properties.PROPERTY_HARVEST_THRESHOLD));
+		resolver.setDedupBudget(properties.getInt(Properties.PROPERTY_DEDUP_BUDGET));
+		resolver.setWorksFirstThreshold(properties.getDouble(Properties.PROPERTY_WORKS_FIRST));
+		resolver.setThreads(getThreads(properties));
+		resolver.setScheduleWindow(properties.getInt(Properties.PROPERTY_SCHEDULE_WINDOW));
+		resolver.setMaxCluster(properties.getInt(Properties.PROPERTY_MAX_CLUSTER));
+		resolver.setFreshWeight(properties.getInt(Properties.PROPERTY_FRESH_WEIGHT));
+		resolver.setBackfillWeight(properties.getInt(Properties.PROPERTY_BACKFILL_WEIGHT));
+		resolver.setFreshPoll(properties.getLong(Properties.PROPERTY_FRESH_POLL) * 1000);
+		resolver.getCrossRef().setWorksLimiter(new RateLimiter(properties.getDouble(Properties.PROPERTY_CROSSREF_RATE)));
+		resolver.getCrossRef().setAuthorityLimiter(new RateLimiter(properties.getDouble(Properties.PROPERTY_AUTHORITY_RATE)));
+		resolver.setShutdownTimeout(TimeUnit.SECONDS.toMillis(properties.getLong(Properties.PROPERTY_SHUTDOWN_TIMEOUT)));
+	}
+	
+	private static void writeVersion(String versionFolder) throws IOException {
+        Files.write(Paths.get(versionFolder, CROSSREF_VERSION_FILE), 
+        		new SimpleDateFormat(DATE_FORMAT).format(new Date()).getBytes());
+	}
+	
+	/**
+	 * Write the state of a stopped resolver. Rows not dispatched or abandoned stay unresolved 
+	 * in the database and are resolved by the next run.
+	 */
+	private static void writeCheckpoint(String versionFolder, Resolver resolver) throws IOException {
+		java.util.Properties checkpoint = new java.util.Properties();
+		checkpoint.setProperty("date", new SimpleDateFormat(DATE_FORMAT).format(new Date()));
+		checkpoint.setProperty("watermark", Long.toString(resolver.getWatermark()));
+		checkpoint.setProperty("undispatched", Long.toString(resolver.getUndispatched()));
+		checkpoint.setProperty("abandoned", Long.toString(resolver.getAbandoned()));
+		
+		try (OutputStream out = Files.newOutputStream(Paths.get(versionFolder, CROSSREF_CHECKPOINT_FILE))) {
+			checkpoint.store(out, "Resolver checkpoint");
+		}
+		
+		System.out.println("Checkpoint: watermark " + resolver.getWatermark() + ", " + resolver.getUndispatched() 
+				+ " DOI's not dispatched, " + resolver.getAbandoned() + " DOI's abandoned");
+	}
+	
+	private static void revalidate(Configuration properties, String crossrefCache) throws Exception {
+		String revalidateFrom = properties.getString(Properties.PROPERTY_REVALIDATE_FROM);
+    	if (StringUtils.isEmpty(revalidateFrom))
+    		throw new IllegalArgumentException("Revalidate From date can not be empty");
+    	
+    	CrossRef crossref = new CrossRef(crossrefCache);
+    	crossref.setCacheTtl(getCacheTtl(properties));
+    	crossref.revalidateWorks(new SimpleDateFormat(DATE_FORMAT).parse(revalidateFrom));
+	}
+	
+	private static void ingest(Configuration properties, String crossrefCache) throws Exception {
+		String source = properties.getString(Properties.PROPERTY_INGEST_SOURCE);
+		if (StringUtils.isEmpty(source))
+    		throw new IllegalArgumentException("Ingest Source can not be empty");
+		
+		String target = properties.getString(Properties.PROPERTY_INGEST_TARGET);
+		boolean toCache = Properties.TARGET_CACHE.equals(target) || Properties.TARGET_BOTH.equals(target);
+		boolean toDatabase = Properties.TARGET_DATABASE.equals(target) || Properties.TARGET_BOTH.equals(target);
+		if (!toCache && !toDatabase)
+			throw new IllegalArgumentException("Invalid ingest target: " + target);
+		
+		CrossRef crossref = toCache ? new CrossRef(crossrefCache) : null;
+		if (toDatabase) {
+			// the database is only needed by mysql sink
+			try (BasicDataSource dataSource = isMySqlSink(properties) ? createDataSource(properties) : null;
+					ResolutionSink sink = createSink(properties, dataSource)) {
+				new SnapshotIngester(crossref, sink, getThreads(properties))
+					.ingest(Paths.get(source));
+			}
+		} else 
+			new SnapshotIngester(crossref, null, getThreads(properties))
+				.ingest(Paths.get(source));
+	}
+	
+	private static void reindex(Configuration properties, String crossrefCache) throws Exception {
+		CrossRef crossref = new CrossRef(crossrefCache);
+		crossref.setProjectionEnabled(properties.getBoolean(Properties.PROPERTY_PROJECTION));
+		
+		try (BasicDataSource dataSource = isMySqlSink(properties) ? createDataSource(properties) : null;
+				ResolutionSink sink = createSink(properties, dataSource)) {
+			new CacheReindexer(crossref, sink, getThreads(properties)).reindex();
+		}
+	}
+	
+	private static BasicDataSource createDataSource(Configuration properties) {
+		String mysqlHost = properties.getString(Properties.PROPERTY_MYSQL_HOST);
+        int mysqlPort = properties.getInt(Properties.PROPERTY_MYSQL_PORT);
+        String mysqlUser = properties.getString(Properties.PROPERTY_MYSQL_USER);
+        String mysqlPassword = properties.getString(Properties.PROPERTY_MYSQL_PASSWORD);
+        String mysqlDatabase = properties.getString(Properties.PROPERTY_MYSQL_DATABASE);
+        
+        int poolSize = properties.getInt(Properties.PROPERTY_MYSQL_POOL_SIZE);
+        if (poolSize <= 0)
+        	poolSize = Resolver.getConnectionCount(getThreads(properties));
+        
+        return ConnectionPool.create(mysqlHost, mysqlPort, mysqlUser, mysqlPassword, mysqlDatabase, poolSize);
+	}
+	
+	private static boolean isMySqlSink(Configuration properties) {
+		return Properties.SINK_MYSQL.equals(properties.getString(Properties.PROPERTY_SINK));
+	}
+	
+	static ResolutionSink createSink(Configuration properties, DataSource dataSource) throws Exception {
+		String sink = properties.getString(Properties.PROPERTY_SINK);
+		int batchSize = properties.getInt(Properties.PROPERTY_BATCH_SIZE);
+		
+		if (Properties.SINK_MYSQL.equals(sink)) {
+			MySqlSink mysqlSink = new MySqlSink(dataSource, getWriteMode(properties), batchSize);
+			mysqlSink.setBulkLoad(properties.getInt(Properties.PROPERTY_BULK_LOAD), 
+	        		TimeUnit.SECONDS.toMillis(properties.getLong(Properties.PROPERTY_BULK_DELAY)));
+			
+			return mysqlSink;
+		}
+		
+		String output = properties.getString(Properties.PROPERTY_SINK_OUTPUT);
+		if (Properties.SINK_TSV.equals(sink)) {
+			if (StringUtils.isEmpty(output) || Properties.OUTPUT_STDOUT.equals(output))
+				throw new IllegalArgumentException("Sink Output folder can not be empty");
+			
+			return new TsvSink(Paths.get(output), batchSize);
+		}
+		
+		if (Properties.SINK_JSON.equals(sink)) {
+			if (StringUtils.isEmpty(output) || Properties.OUTPUT_STDOUT.equals(output))
+				return new JsonLinesSink(stdout, false, batchSize);
+			
+			return new JsonLinesSink(Files.newOutputStream(Paths.get(output)), true, batchSize);
+		}
+		
+		throw new IllegalArgumentException("Invalid sink: " + sink);
+	}
+	
+	private static long getCacheTtl(Configuration properties) {
+		return TimeUnit.DAYS.toMillis(properties.getLong(Properties.PROPERTY_CACHE_TTL));
+	}
+	
+	static WriteMode getWriteMode(Configuration properties) {
+		// ingest and reindex write works without source rows, so re-running them must not insert the works again
+		String mode = properties.getString(Properties.PROPERTY_MODE);
+		boolean rebuild = Properties.MODE_INGEST.equals(mode) || Properties.MODE_REINDEX.equals(mode);
+		
+		String writeMode = properties.getString(Properties.PROPERTY_WRITE_MODE);
+		if (StringUtils.isEmpty(writeMode))
+			writeMode = rebuild ? Properties.DEFAULT_INGEST_WRITE_MODE : Properties.DEFAULT_WRITE_MODE;
+		
+		WriteMode result = WriteMode.fromString(writeMode);
+		if (rebuild && WriteMode.INSERT == result)
+			throw new IllegalArgumentException("Write mode " + writeMode + " would duplicate works on every " + mode + ", use upsert or update");
+		
+		return result;
+	}
+	
+	private static int getThreads(Configuration properties) {
+		int threads = properties.getInt(Properties.PROPERTY_THREADS);
+		return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+	}
 }
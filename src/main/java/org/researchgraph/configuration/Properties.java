@@ -27,6 +27,36 @@ public class Properties {
 	public static final String PROPERTY_MYSQL_USER = "mysql-user";
 	public static final String PROPERTY_MYSQL_PASSWORD = "mysql-password";
 	public static final String PROPERTY_MYSQL_DATABASE = "mysql-database";
+	public static final String PROPERTY_MYSQL_POOL_SIZE = "mysql-pool-size";
+	public static final String PROPERTY_MODE = "mode";
+	public static final String PROPERTY_CACHE_TTL = "cache-ttl";
+	public static final String PROPERTY_REVALIDATE_FROM = "revalidate-from";
+	public static final String PROPERTY_PROJECTION = "projection";
+	public static final String PROPERTY_HARVEST_THRESHOLD = "harvest-threshold";
+	public static final String PROPERTY_INGEST_SOURCE = "ingest-source";
+	public static final String PROPERTY_INGEST_TARGET = "ingest-target";
+	public static final String PROPERTY_THREADS = "threads";
+	public static final String PROPERTY_WRITE_MODE = "write-mode";
+	public static final String PROPERTY_BULK_LOAD = "bulk-load";
+	public static final String PROPERTY_BULK_DELAY = "bulk-delay";
+	public static final String PROPERTY_SINK = "sink";
+	public static final String PROPERTY_SINK_OUTPUT = "sink-output";
+	public static final String PROPERTY_BATCH_SIZE = "batch-size";
+	public static final String PROPERTY_DEDUP_BUDGET = "dedup-budget";
+	public static final String PROPERTY_WORKS_FIRST = "works-first";
+	public static final String PROPERTY_CROSSREF_RATE = "crossref-rate";
+	public static final String PROPERTY_AUTHORITY_RATE = "authority-rate";
+	public static final String PROPERTY_SCHEDULE_WINDOW = "schedule-window";
+	public static final String PROPERTY_MAX_CLUSTER = "max-cluster";
+	public static final String PROPERTY_FRESH_WEIGHT = "fresh-weight";
+	public static final String PROPERTY_BACKFILL_WEIGHT = "backfill-weight";
+	public static final String PROPERTY_FRESH_POLL = "fresh-poll";
+	public static final String PROPERTY_DAEMON_INTERVAL = "daemon-interval";
+	public static final String PROPERTY_DAEMON_MAX_INTERVAL = "daemon-max-interval";
+	public static final String PROPERTY_SHUTDOWN_TIMEOUT = "shutdown-timeout";
+	public static final String PROPERTY_PIPE_INPUT = "pipe-input";
+	public static final String PROPERTY_PIPE_ORDER = "pipe-order";
+	public static final String PROPERTY_PIPE_WINDOW = "pipe-window";
 	public static final String PROPERTY_CONFIG_FILE = "config-file";
 	public static final String PROPERTY_HELP = "help";
 	
@@ -35,6 +65,55 @@ public class Properties {
 	public static final String DEFAULT_MYSQL_HOST = "localhost";
 	public static final String DEFAULT_MYSQL_PORT = "3306";
 	public static final String DEFAULT_MYSQL_DATABASE = "crossref";
+	public static final String DEFAULT_MYSQL_POOL_SIZE = "0";
+	public static final String DEFAULT_MODE = "resolve";
+	public static final String DEFAULT_CACHE_TTL = "0";
+	public static final String DEFAULT_PROJECTION = "false";
+	public static final String DEFAULT_HARVEST_THRESHOLD = "0";
+	public static final String DEFAULT_INGEST_TARGET = "cache";
+	public static final String DEFAULT_THREADS = "0";
+	public static final String DEFAULT_WRITE_MODE = "insert";
+	public static final String DEFAULT_INGEST_WRITE_MODE = "upsert";
+	public static final String DEFAULT_BULK_LOAD = "0";
+	public static final String DEFAULT_BULK_DELAY = "60";
+	public static final String DEFAULT_SINK = "mysql";
+	public static final String DEFAULT_BATCH_SIZE = "100";
+	public static final String DEFAULT_DEDUP_BUDGET = "1000000";
+	public static final String DEFAULT_WORKS_FIRST = "0";
+	public static final String DEFAULT_CROSSREF_RATE = "0";
+	public static final String DEFAULT_AUTHORITY_RATE = "0";
+	public static final String DEFAULT_SCHEDULE_WINDOW = "0";
+	public static final String DEFAULT_MAX_CLUSTER = "50";
+	public static final String DEFAULT_FRESH_WEIGHT = "0";
+	public static final String DEFAULT_BACKFILL_WEIGHT = "1";
+	public static final String DEFAULT_FRESH_POLL = "60";
+	public static final String DEFAULT_DAEMON_INTERVAL = "60";
+	public static final String DEFAULT_DAEMON_MAX_INTERVAL = "3600";
+	public static final String DEFAULT_SHUTDOWN_TIMEOUT = "60";
+	public static final String DEFAULT_PIPE_INPUT = "-";
+	public static final String DEFAULT_PIPE_ORDER = "completion";
+	public static final String DEFAULT_PIPE_WINDOW = "10000";
+	
+	public static final String MODE_RESOLVE = "resolve";
+	public static final String MODE_REVALIDATE = "revalidate";
+	public static final String MODE_INGEST = "ingest";
+	public static final String MODE_REINDEX = "reindex";
+	public static final String MODE_DAEMON = "daemon";
+	public static final String MODE_PIPE = "pipe";
+	
+	public static final String ORDER_COMPLETION = "completion";
+	public static final String ORDER_INPUT = "input";
+	
+	public static final String TARGET_CACHE = "cache";
+	public static final String TARGET_DATABASE = "database";
+	public static final String TARGET_BOTH = "both";
+	
+	public static final String SINK_MYSQL = "mysql";
+	public static final String SINK_TSV = "tsv";
+	public static final String SINK_JSON = "json";
+	
+	public static final String OUTPUT_STDOUT = "-";
+	public static final String INPUT_STDIN = "-";
 	
 	public static Configuration fromArgs(String[] args) throws Exception {
 		CommandLineParser parser = new DefaultParser();
@@ -50,6 +129,36 @@ public class Properties {
 		options.addOption( "u", PROPERTY_MYSQL_USER, true, "MySQL User" );
 		options.addOption( "p", PROPERTY_MYSQL_PASSWORD, true, "MySQL Password" );
 		options.addOption( "d", PROPERTY_MYSQL_DATABASE, true, "MySQL Database" );
+		options.addOption( "o", PROPERTY_MYSQL_POOL_SIZE, true, "MySQL connection pool size, 0 to size the pool for the CrossRef and authority lanes" );
+		options.addOption( "m", PROPERTY_MODE, true, "Mode (resolve, revalidate, ingest, reindex, daemon or pipe)" );
+		options.addOption( "t", PROPERTY_CACHE_TTL, true, "CrossRef Cache time to live in days, 0 if cache never expires" );
+		options.addOption( "r", PROPERTY_REVALIDATE_FROM, true, "Revalidate cached works indexed since date (yyyy-MM-dd)" );
+		options.addOption( "j", PROPERTY_PROJECTION, true, "Parse only the work fields used by resolver (true or false)" );
+		options.addOption( "T", PROPERTY_HARVEST_THRESHOLD, true, "Minimal number of unresolved DOI's with the same prefix to harvest the prefix in bulk, 0 to disable" );
+		options.addOption( "i", PROPERTY_INGEST_SOURCE, true, "Folder with CrossRef public data files to ingest" );
+		options.addOption( "I", PROPERTY_INGEST_TARGET, true, "Ingest target (cache, database or both), database means the resolution sink" );
+		options.addOption( "w", PROPERTY_THREADS, true, "Number of worker threads, 0 to use one thread per core" );
+		options.addOption( "W", PROPERTY_WRITE_MODE, true, "Write mode (insert, update or upsert), upsert by default for ingest and reindex and insert otherwise" );
+		options.addOption( "b", PROPERTY_BULK_LOAD, true, "Number of works to write at once with LOAD DATA, 0 to write row by row" );
+		options.addOption( "B", PROPERTY_BULK_DELAY, true, "Maximal time in seconds to buffer works for LOAD DATA, 0 to flush by size only" );
+		options.addOption( "k", PROPERTY_SINK, true, "Resolution sink (mysql, tsv or json)" );
+		options.addOption( "O", PROPERTY_SINK_OUTPUT, true, "Output folder of tsv sink or output file of json sink, - for stdout" );
+		options.addOption( "a", PROPERTY_BATCH_SIZE, true, "Number of works written by the resolution sink at once" );
+		options.addOption( "D", PROPERTY_DEDUP_BUDGET, true, "Number of rows grouped by DOI in memory, larger backlogs are grouped on disk" );
+		options.addOption( "f", PROPERTY_WORKS_FIRST, true, "Minimal share of CrossRef DOI's in a prefix (0 - 1) to request works before the authority, 0 to disable" );
+		options.addOption( "R", PROPERTY_CROSSREF_RATE, true, "Maximal number of CrossRef API requests per second, 0 for unlimited" );
+		options.addOption( "A", PROPERTY_AUTHORITY_RATE, true, "Maximal number of DOI registration agency requests per second, 0 for unlimited" );
+		options.addOption( "S", PROPERTY_SCHEDULE_WINDOW, true, "Number of DOI's reordered into prefix clusters at once, 0 to keep row order" );
+		options.addOption( "x", PROPERTY_MAX_CLUSTER, true, "Maximal number of DOI's of one prefix dispatched in a row" );
+		options.addOption( "F", PROPERTY_FRESH_WEIGHT, true, "Number of fresh DOI's, added after the start, dispatched per turn, 0 to disable priority scheduling" );
+		options.addOption( "g", PROPERTY_BACKFILL_WEIGHT, true, "Number of backfill DOI's dispatched per turn" );
+		options.addOption( "q", PROPERTY_FRESH_POLL, true, "Interval in seconds between queries for fresh DOI's" );
+		options.addOption( "l", PROPERTY_DAEMON_INTERVAL, true, "Daemon interval in seconds between cycles which have found DOI's" );
+		options.addOption( "L", PROPERTY_DAEMON_MAX_INTERVAL, true, "Maximal daemon interval in seconds, the interval doubles after every idle cycle" );
+		options.addOption( "e", PROPERTY_SHUTDOWN_TIMEOUT, true, "Time in seconds to finish dispatched DOI's on shutdown, before they are abandoned" );
+		options.addOption( "y", PROPERTY_PIPE_INPUT, true, "File with one DOI per line to resolve in pipe mode, - for stdin" );
+		options.addOption( "z", PROPERTY_PIPE_ORDER, true, "Order of pipe mode results (completion or input)" );
+		options.addOption( "Z", PROPERTY_PIPE_WINDOW, true, "Maximal number of DOI's in flight in pipe mode" );
 		options.addOption( "c", PROPERTY_CONFIG_FILE, true, "configuration file (optional)" );
 		options.addOption( "h", PROPERTY_HELP, false, "Print this message" );
 
@@ -72,6 +181,32 @@ public class Properties {
 		defaultConfig.setProperty( PROPERTY_MYSQL_HOST, DEFAULT_MYSQL_HOST );
 		defaultConfig.setProperty( PROPERTY_MYSQL_PORT, DEFAULT_MYSQL_PORT );
 		defaultConfig.setProperty( PROPERTY_MYSQL_DATABASE, DEFAULT_MYSQL_DATABASE );
+		defaultConfig.setProperty( PROPERTY_MYSQL_POOL_SIZE, DEFAULT_MYSQL_POOL_SIZE );
+		defaultConfig.setProperty( PROPERTY_MODE, DEFAULT_MODE );
+		defaultConfig.setProperty( PROPERTY_CACHE_TTL, DEFAULT_CACHE_TTL );
+		defaultConfig.setProperty( PROPERTY_PROJECTION, DEFAULT_PROJECTION );
+		defaultConfig.setProperty( PROPERTY_HARVEST_THRESHOLD, DEFAULT_HARVEST_THRESHOLD );
+		defaultConfig.setProperty( PROPERTY_INGEST_TARGET, DEFAULT_INGEST_TARGET );
+		defaultConfig.setProperty( PROPERTY_THREADS, DEFAULT_THREADS );
+		defaultConfig.setProperty( PROPERTY_BULK_LOAD, DEFAULT_BULK_LOAD );
+		defaultConfig.setProperty( PROPERTY_BULK_DELAY, DEFAULT_BULK_DELAY );
+		defaultConfig.setProperty( PROPERTY_SINK, DEFAULT_SINK );
+		defaultConfig.setProperty( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+		defaultConfig.setProperty( PROPERTY_DEDUP_BUDGET, DEFAULT_DEDUP_BUDGET );
+		defaultConfig.setProperty( PROPERTY_WORKS_FIRST, DEFAULT_WORKS_FIRST );
+		defaultConfig.setProperty( PROPERTY_CROSSREF_RATE, DEFAULT_CROSSREF_RATE );
+		defaultConfig.setProperty( PROPERTY_AUTHORITY_RATE, DEFAULT_AUTHORITY_RATE );
+		defaultConfig.setProperty( PROPERTY_SCHEDULE_WINDOW, DEFAULT_SCHEDULE_WINDOW );
+		defaultConfig.setProperty( PROPERTY_MAX_CLUSTER, DEFAULT_MAX_CLUSTER );
+		defaultConfig.setProperty( PROPERTY_FRESH_WEIGHT, DEFAULT_FRESH_WEIGHT );
+		defaultConfig.setProperty( PROPERTY_BACKFILL_WEIGHT, DEFAULT_BACKFILL_WEIGHT );
+		defaultConfig.setProperty( PROPERTY_FRESH_POLL, DEFAULT_FRESH_POLL );
+		defaultConfig.setProperty( PROPERTY_DAEMON_INTERVAL, DEFAULT_DAEMON_INTERVAL );
+		defaultConfig.setProperty( PROPERTY_DAEMON_MAX_INTERVAL, DEFAULT_DAEMON_MAX_INTERVAL );
+		defaultConfig.setProperty( PROPERTY_SHUTDOWN_TIMEOUT, DEFAULT_SHUTDOWN_TIMEOUT );
+		defaultConfig.setProperty( PROPERTY_PIPE_INPUT, DEFAULT_PIPE_INPUT );
+		defaultConfig.setProperty( PROPERTY_PIPE_ORDER, DEFAULT_PIPE_ORDER );
+		defaultConfig.setProperty( PROPERTY_PIPE_WINDOW, DEFAULT_PIPE_WINDOW );
 		
 		BaseConfiguration commandLineConfig = new BaseConfiguration();
 		
@@ -1,5 +1,7 @@
 package org.researchgraph.crossref;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 public class Affiliation {
 	private String name;
 
@@ -7,6 +9,7 @@ public class Affiliation {
 		return name;
 	}
 
+	@JsonDeserialize(using = InternedStringDeserializer.Names.class)
 	public void setName(String name) {
 		this.name = name;
 	}
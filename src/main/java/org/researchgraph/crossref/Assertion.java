@@ -63,7 +63,7 @@ public class Assertion {
 	
 	@JsonAnySetter
 	public void handleUnknown(String key, Object value) {
-		System.out.println("Warning. Ignoring Assertion property: " + key + " with value: " + value);			
+		UnknownProperties.handle(Assertion.class, key);
 	}
 	
 	@Override
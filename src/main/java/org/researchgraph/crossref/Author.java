@@ -79,7 +79,7 @@ public class Author {
 	
 	@JsonAnySetter
 	public void handleUnknown(String key, Object value) {
-		System.out.println("Warning. Ignoring Author property: " + key + " with value: " + value);			
+		UnknownProperties.handle(Author.class, key);
 	}
 	
 	@Override
@@ -0,0 +1,52 @@
+package org.researchgraph.crossref;
+
+import java.util.Date;
+
+/**
+ * Class to store freshness information about a cached work
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class CacheEntry {
+	private final String doi;
+	private final Date fetched;
+	private final Date indexed;
+	
+	public CacheEntry(String doi, Date fetched, Date indexed) {
+		this.doi = doi;
+		this.fetched = fetched;
+		this.indexed = indexed;
+	}
+
+	public String getDoi() {
+		return doi;
+	}
+
+	/**
+	 * @return Date when the work has been downloaded
+	 */
+	public Date getFetched() {
+		return fetched;
+	}
+
+	/**
+	 * @return Date when the work has been indexed by CrossRef, as stored in the cached copy
+	 */
+	public Date getIndexed() {
+		return indexed;
+	}
+	
+	/**
+	 * Test if the work has been indexed again after it has been cached
+	 * @param indexed Date when the work was last indexed by CrossRef
+	 * @return true if cached copy is outdated
+	 */
+	public boolean isChanged(Date indexed) {
+		return null == this.indexed || null == indexed || indexed.after(this.indexed);
+	}
+
+	@Override
+	public String toString() {
+		return "CacheEntry [doi=" + doi + ", fetched=" + fetched + ", indexed=" + indexed + "]";
+	}
+}
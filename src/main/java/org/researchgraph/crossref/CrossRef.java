@@ -1,32 +1,55 @@
 package org.researchgraph.crossref;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
 
 import javax.ws.rs.core.MediaType;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang.StringUtils;
 
 import com.amazonaws.auth.InstanceProfileCredentialsProvider;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.util.IOUtils;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 
@@ -46,6 +69,11 @@ public class CrossRef {
 	private static final String CACHE_WORKS = "works";
 	private static final String CACHE_AUTHORITY = "authority";
 	
+	// works have always been cached in the "authority" folder and authorities in "works", 
+	// keep that layout so existing caches stay valid
+	private static final String FOLDER_WORKS = CACHE_AUTHORITY;
+	private static final String FOLDER_AUTHORITY = CACHE_WORKS;
+	
 	private static final String FUNCTION_WORKS = "works";
 	private static final String FUNCTION_DOI_RA = "doiRA";
 	/*private static final String FUNCTION_FUNDERS = "funders";
@@ -66,13 +94,38 @@ public class CrossRef {
 	
 	/*private static final String PARAM_QUERY = "q";
 	private static final String PARAM_HEADER = "header";*/
+	private static final String PARAM_FILTER = "filter";
+	private static final String PARAM_ROWS = "rows";
+	private static final String PARAM_SELECT = "select";
+	private static final String PARAM_CURSOR = "cursor";
+	
+	private static final String FILTER_FROM_INDEX_DATE = "from-index-date";
+	private static final String FILTER_DOI = "doi";
+	
+	public static final String FILTER_PREFIX = "prefix";
+	
+	private static final String SELECT_REVALIDATE = "DOI,indexed";
+	
+	private static final String FORMAT_FILTER_DATE = "yyyy-MM-dd";
+	
+	private static final int REVALIDATE_BATCH = 50;
+	
+	public static final int MAX_ROWS = 1000;
 	
 	private static final String STATUS_OK = "ok";
 	
 	private static final String MESSAGE_WORK = "work";
 	private static final String MESSAGE_WORK_LIST = "work-list";
+	private static final String MESSAGE_VERSION = "1.0.0";
+	
+	private static final String FIELD_STATUS = "status";
+	private static final String FIELD_MESSAGE_TYPE = "message-type";
+	private static final String FIELD_MESSAGE_VERSION = "message-version";
+	private static final String FIELD_MESSAGE = "message";
+	private static final String FIELD_DOI = "DOI";
 	
 	private static final String EXT_JSON = ".json";
+	private static final String EXT_TMP = ".tmp";
 	
 	private static final String PART_DOI = "doi:";
 	
@@ -80,6 +133,14 @@ public class CrossRef {
 	
 	private static final String PREFIX_ROOT = "/";
 	
+	private static final int HTTP_NOT_FOUND = 404;
+	
+	private static final int CONNECT_TIMEOUT = 30000;
+	private static final int READ_TIMEOUT = 60000;
+	
+	// client is thread safe, sharing it keeps connections alive between requests
+	private static final Client client = createClient();
+	
 	private final File cache;
 	
 	private final AmazonS3 s3Client;
@@ -89,6 +150,10 @@ public class CrossRef {
 	private long maxAttempts = 10;
 	private long attemptDelay = 1000;
 	private boolean dbaEnabled = true;
+	private long cacheTtl = 0;
+	private boolean projectionEnabled = false;
+	private RateLimiter worksLimiter = new RateLimiter(0);
+	private RateLimiter authorityLimiter = new RateLimiter(0);
 	
 	private static final ObjectMapper mapper = new ObjectMapper();   
 	private static final TypeReference<Response<ItemList>> itemListType = new TypeReference<Response<ItemList>>() {};   
@@ -134,16 +199,9 @@ public class CrossRef {
 	 * @return ItemList - a list of works
 	 */
 	public ItemList requestWorks() {
-		try {
-			String json = get(URL_CROSSREF_WORKDS);
-			if (null != json) {			
-				Response<ItemList> response = mapper.readValue(json, itemListType);
-				
-				//System.out.println(response);
-				
-				if (response.getStatus().equals(STATUS_OK) && 
-					response.getMessageType().equals(MESSAGE_WORK_LIST)) 
-					return response.getMessage();
+		try (InputStream is = get(URL_CROSSREF_WORKDS)) {
+			if (null != is) {			
+				return parseWorkList(is);
 			}		
 			else
 				System.err.println("Inavlid response");
@@ -160,25 +218,177 @@ public class CrossRef {
 	}
 	
 	/**
-	 * Request work by doi identificator
+	 * Request works with deep paging. The works are read lazily, one at a time, 
+	 * and the next page is prefetched while the current one is consumed.
+	 * If projection is enabled, only DOI, title, issued date and authors will be set.
+	 * The returned cursor must be closed.
+	 * @param filters Collection of filters, in form name:value, see {@link #filter(String, String)}. Can be null
+	 * @param rows number of works per page, up to MAX_ROWS
+	 * @return WorkCursor - an iterator over works
+	 */
+	public WorkCursor<Item> requestWorks(Collection<String> filters, int rows) {
+		return requestWorks(filters, rows, projectionEnabled 
+				? ItemProjection::parseItem 
+				: p -> mapper.readValue(p, Item.class));
+	}
+	
+	/**
+	 * Request works with deep paging, as a Stream. The stream must be closed.
+	 * @param filters Collection of filters, in form name:value. Can be null
+	 * @param rows number of works per page, up to MAX_ROWS
+	 * @return Stream of works
+	 */
+	public Stream<Item> streamWorks(Collection<String> filters, int rows) {
+		return requestWorks(filters, rows).stream();
+	}
+	
+	private <T> WorkCursor<T> requestWorks(Collection<String> filters, int rows, WorkCursor.ItemReader<T> reader) {
+		if (rows <= 0 || rows > MAX_ROWS)
+			throw new IllegalArgumentException("Invalid number of rows: " + rows);
+		
+		final String url;
+		try {
+			url = getWorksUrl(filters) + PARAM_ROWS + "=" + rows + "&" + PARAM_CURSOR + "=";
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		return new WorkCursor<T>(mapper.getFactory(), 
+				cursor -> get(url + URLEncoder.encode(cursor, URL_ENCODING)), reader, rows);
+	}
+	
+	/**
+	 * Request number of works matching the filters
+	 * @param filters Collection of filters, in form name:value. Can be null
+	 * @return number of works or -1 if it can not be requested
+	 */
+	public long requestWorksCount(Collection<String> filters) {
+		try {
+			try (InputStream is = get(getWorksUrl(filters) + PARAM_ROWS + "=0")) {
+				ItemList list = null == is ? null : parseWorkList(is);
+				if (null != list)
+					return list.getTotalResults();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Download all works matching the filters into the works cache. 
+	 * Every work is stored as if it has been requested with {@link #requestWork(String)}.
+	 * @param filters Collection of filters, in form name:value
+	 * @return number of cached works
+	 */
+	public long harvestWorks(Collection<String> filters) {
+		return harvestWorks(filters, () -> false);
+	}
+	
+	/**
+	 * Download works matching the filters into the works cache, until stopped. 
+	 * The stop condition is checked before every work, the cursor and its prefetched page are closed on stop.
+	 * @param filters Collection of filters, in form name:value
+	 * @param stopped condition to stop harvesting
+	 * @return number of cached works
+	 */
+	public long harvestWorks(Collection<String> filters, BooleanSupplier stopped) {
+		long harvested = 0;
+		try (WorkCursor<JsonNode> cursor = requestWorks(filters, MAX_ROWS, p -> mapper.readTree(p))) {
+			while (!stopped.getAsBoolean() && cursor.hasNext()) {
+				if (saveWork(cursor.next()))
+					++harvested;
+			}
+		} catch (IOException | UncheckedIOException e) {
+			e.printStackTrace();
+		}
+		
+		return harvested;
+	}
+	
+	/**
+	 * Store work object in the works cache, as if it has been requested with {@link #requestWork(String)}
+	 * @param work JsonNode containing CrossRef work object
+	 * @return true if work has been stored, false if it has no DOI
+	 * @throws IOException
+	 */
+	public boolean saveWork(JsonNode work) throws IOException {
+		JsonNode doi = work.get(FIELD_DOI);
+		if (null == doi || !doi.isTextual())
+			return false;
+		
+		return saveWork(doi.asText(), work);
+	}
+	
+	/**
+	 * Store work object in the works cache under the given DOI, as if it has been requested with {@link #requestWork(String)}
+	 * @param doi String containing DOI the work will be requested with
+	 * @param work JsonNode containing CrossRef work object
+	 * @return true if work has been stored, false if the DOI is empty
+	 * @throws IOException
+	 */
+	public boolean saveWork(String doi, JsonNode work) throws IOException {
+		if (StringUtils.isEmpty(doi))
+			return false;
+		
+		ObjectNode response = mapper.createObjectNode();
+		response.put(FIELD_STATUS, STATUS_OK);
+		response.put(FIELD_MESSAGE_TYPE, MESSAGE_WORK);
+		response.put(FIELD_MESSAGE_VERSION, MESSAGE_VERSION);
+		response.set(FIELD_MESSAGE, work);
+		
+		saveCacheFile(getWorkFileName(encodeWorkDoi(doi)), 
+				new ByteArrayInputStream(mapper.writeValueAsBytes(response)), null);
+		return true;
+	}
+	
+	/**
+	 * Build works filter
+	 * @param name String containing filter name, for example prefix or from-index-date
+	 * @param value String containing filter value
+	 * @return String containing filter
+	 */
+	public static String filter(String name, String value) {
+		return name + ":" + value;
+	}
+	
+	/**
+	 * Request work by doi identificator. 
+	 * If projection is enabled, only DOI, title, issued date and authors will be set.
 	 * @param doi String containing doi identificator
 	 * @return Item - work information
 	 */
 	public Item requestWork(String doi) {
+		return requestWork(doi, projectionEnabled ? this::parseWorkProjection : this::parseWork);
+	}
+	
+	/**
+	 * Request work by doi identificator into a reusable record. 
+	 * Only DOI, first title, issued date and authors will be set.
+	 * @param doi String containing doi identificator
+	 * @param record WorkRecord to fill
+	 * @return true if work has been found
+	 */
+	public boolean requestWork(String doi, WorkRecord record) {
+		return Boolean.TRUE.equals(requestWork(doi, is -> parseWorkRecord(is, record)));
+	}
+	
+	private <T> T requestWork(String doi, CacheParser<T> parser) {
 		try {
 			String encodedDoi = encodeWorkDoi(doi);
 			String cachedFile = getWorkFileName(encodedDoi);
-			String json = getCahcedFile(cachedFile);
-				
-			if (null == json) {
-				json = getWork(encodedDoi);
-				saveCacheFile(cachedFile, json);
-			}
-				
-			if (null != json) {
-				return parseWork(json);
+			if (!isCacheExpired(cachedFile)) {
+				try (InputStream is = getCahcedFile(cachedFile)) {
+					if (null != is) 
+						return parser.parse(is);
+				}
 			}
 			
+			try (InputStream is = getWork(encodedDoi)) {
+				if (null != is) 
+					return saveCacheFile(cachedFile, is, parser);
+			}
 			
 			System.err.println("Inavlid response");			
 		} catch (JsonParseException e) {
@@ -192,19 +402,156 @@ public class CrossRef {
 		return null;
 	}
 	
+	/**
+	 * Request work from the cache only. The network is never used and the cache time to live is ignored.
+	 * If projection is enabled, only DOI, title, issued date and authors will be set.
+	 * @param doi String containing doi identificator
+	 * @return Item - work information or null if work is not cached
+	 */
+	public Item requestCachedWork(String doi) {
+		try (InputStream is = getCahcedFile(getWorkFileName(encodeWorkDoi(doi)))) {
+			if (null != is) 
+				return projectionEnabled ? parseWorkProjection(is) : parseWork(is);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Request freshness information about a cached work. The network is never used.
+	 * @param doi String containing doi identificator
+	 * @return CacheEntry - fetch time and indexed date of the cached work or null if the work is not cached
+	 */
+	public CacheEntry requestCacheEntry(String doi) {
+		try {
+			String cachedFile = getWorkFileName(encodeWorkDoi(doi));
+			Date fetched = getCachedFileTime(cachedFile);
+			if (null != fetched) {
+				try (InputStream is = getCahcedFile(cachedFile)) {
+					Item work = null == is ? null : parseWork(is);
+					
+					return new CacheEntry(doi, fetched, null == work ? null : work.getIndexed());
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Revalidate all cached works. The works endpoint is queried with the from-index-date filter
+	 * for batches of cached DOI's and only the works indexed after they have been cached are downloaded again.
+	 * @param fromIndexDate Date, works indexed before that date are considered to be fresh
+	 * @return number of works downloaded again
+	 */
+	public long revalidateWorks(Date fromIndexDate) {
+		long refreshed = 0;
+		
+		try {
+			List<String> dois = listCachedWorks();
+			System.out.println("Revalidating " + dois.size() + " cached works");
+			
+			String fromFilter = FILTER_FROM_INDEX_DATE + ":" + new SimpleDateFormat(FORMAT_FILTER_DATE).format(fromIndexDate);
+			for (int i = 0; i < dois.size(); i += REVALIDATE_BATCH) {
+				List<String> batch = dois.subList(i, Math.min(i + REVALIDATE_BATCH, dois.size()));
+				
+				Map<String, String> cached = new HashMap<String, String>();
+				StringBuilder filter = new StringBuilder(fromFilter);
+				for (String doi : batch) {
+					cached.put(doi.toLowerCase(), doi);
+					filter.append(",").append(FILTER_DOI).append(":").append(doi);
+				}
+				
+				ItemList list;
+				try (InputStream is = get(URL_CROSSREF_WORKDS 
+						+ "?" + PARAM_FILTER + "=" + URLEncoder.encode(filter.toString(), URL_ENCODING)
+						+ "&" + PARAM_ROWS + "=" + batch.size()
+						+ "&" + PARAM_SELECT + "=" + URLEncoder.encode(SELECT_REVALIDATE, URL_ENCODING))) {
+					list = null == is ? null : parseWorkList(is);
+				}
+				if (null == list || null == list.getItems()) 
+					continue;
+				
+				for (Item item : list.getItems()) {
+					String doi = null == item.getDoi() ? null : cached.get(item.getDoi().toLowerCase());
+					if (null != doi && refreshWork(doi, item.getIndexed()))
+						++refreshed;
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		System.out.println("Done. Refreshed " + refreshed + " works");
+		
+		return refreshed;
+	}
+	
+	/**
+	 * List all works stored in the cache
+	 * @return List of DOI's
+	 */
+	public List<String> listCachedWorks() {
+		List<String> dois = new ArrayList<String>();
+		if (null != cache) {
+			String[] files = new File(cache, FOLDER_WORKS).list();
+			if (null != files)
+				for (String file : files) {
+					String doi = decodeWorkFileName(file);
+					if (null != doi)
+						dois.add(doi);
+				}
+		} else if (null != s3Client) {
+			String folder = getS3Key(FOLDER_WORKS + "/");
+			ObjectListing listing = s3Client.listObjects(s3Bucket, folder);
+			for (;;) {
+				for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+					String doi = decodeWorkFileName(summary.getKey().substring(folder.length()));
+					if (null != doi)
+						dois.add(doi);
+				}
+				
+				if (!listing.isTruncated())
+					break;
+				
+				listing = s3Client.listNextBatchOfObjects(listing);
+			}
+		}
+		
+		return dois;
+	}
+	
+	private boolean refreshWork(String doi, Date indexed) throws IOException {
+		CacheEntry entry = requestCacheEntry(doi);
+		if (null != entry && !entry.isChanged(indexed)) 
+			return false;
+		
+		String encodedDoi = encodeWorkDoi(doi);
+		try (InputStream is = getWork(encodedDoi)) {
+			if (null == is)
+				return false;
+			
+			saveCacheFile(getWorkFileName(encodedDoi), is, null);
+			return true;
+		}
+	}
+	
 	public String requestAuthority(String doi) {
 		try {
 			String encodedDoi = encodeAuthorityDoi(doi);
 			String cachedFile = getAutorityFileName(encodedDoi);
-			String json = getCahcedFile(cachedFile);
-			
-			if (null == json) {
-				json = getAuthority(encodedDoi);
-				saveCacheFile(cachedFile, json);
+			try (InputStream is = getCahcedFile(cachedFile)) {
+				if (null != is) 
+					return parseAuthority(is);
 			}
 			
-			if (null != json) {
-				return parseAuthority(json);
+			try (InputStream is = getAuthority(encodedDoi)) {
+				if (null != is) 
+					return saveCacheFile(cachedFile, is, this::parseAuthority);
 			}
 
 		} catch (Exception e) {
@@ -214,22 +561,45 @@ public class CrossRef {
 		return null;
 	}
 		
-	private String get( final String url ) {
+	/**
+	 * Download a resource. The returned stream has to be closed by the caller. 
+	 * @param url String containing URL
+	 * @return InputStream with the raw response body or null if resource does not exists
+	 */
+	private InputStream get( final String url ) {
+		return get(url, worksLimiter);
+	}
+	
+	/**
+	 * Download a resource. The returned stream has to be closed by the caller. 
+	 * @param url String containing URL
+	 * @param limiter RateLimiter of the service
+	 * @return InputStream with the raw response body or null if resource does not exists
+	 */
+	private InputStream get( final String url, final RateLimiter limiter ) {
 		System.out.println("Downloading: " + url);
 						
 		long delay = attemptDelay;
 		long attemps = maxAttempts;
 		for (;;) {
 			try {
-				ClientResponse response = Client.create()
+				limiter.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting to download: " + url, e);
+			}
+			
+			try {
+				ClientResponse response = client
 										  .resource( url )
 										  .accept( MediaType.APPLICATION_JSON ) 
 										  .get( ClientResponse.class );
 				
 				if (response.getStatus() == 200) 
-					return response.getEntity( String.class );
-				else
-					return null;
+					return response.getEntityInputStream();
+				
+				response.close();
+				return null;
 				
 			} catch (Exception e) {
 				if (attemps <= 0)
@@ -247,6 +617,13 @@ public class CrossRef {
 		}
     } 
 	
+	private String getWorksUrl(Collection<String> filters) throws UnsupportedEncodingException {
+		if (null == filters || filters.isEmpty()) 
+			return URL_CROSSREF_WORKDS + "?";
+		
+		return URL_CROSSREF_WORKDS + "?" + PARAM_FILTER + "=" + URLEncoder.encode(StringUtils.join(filters, ","), URL_ENCODING) + "&";
+	}
+	
 	private String encodeWorkDoi(String doi) throws UnsupportedEncodingException {
 		return URLEncoder.encode(PART_DOI + doi, URL_ENCODING);
 	}
@@ -256,65 +633,147 @@ public class CrossRef {
 	}
 
 	private String getAutorityFileName(String encodedDoi) {
-		return CACHE_WORKS + "/" + encodedDoi + EXT_JSON;
+		return FOLDER_AUTHORITY + "/" + encodedDoi + EXT_JSON;
 	}
 	
 	private String getWorkFileName(String encodedDoi) {
-		return CACHE_AUTHORITY + "/" + encodedDoi + EXT_JSON;
+		return FOLDER_WORKS + "/" + encodedDoi + EXT_JSON;
+	}
+	
+	private String decodeWorkFileName(String file) {
+		if (!file.endsWith(EXT_JSON))
+			return null;
+		
+		try {
+			String doi = URLDecoder.decode(file.substring(0, file.length() - EXT_JSON.length()), URL_ENCODING);
+			return doi.startsWith(PART_DOI) ? doi.substring(PART_DOI.length()) : null;
+		} catch (UnsupportedEncodingException | IllegalArgumentException e) {
+			return null;
+		}
 	}
 	
 	private String getS3Key(String file) {
 		return s3Prefix + file;
 	}
 	
-	private String getCahcedFile(String file) throws IOException { 
+	private InputStream getCahcedFile(String file) throws IOException { 
 		if (null != cache) {
 			File f = new File(cache, file);
 			if (f.exists() && !f.isDirectory()) {
-				return FileUtils.readFileToString(f); 
+				// not buffered, the parser reads in large blocks and recycles its buffers
+				return new FileInputStream(f); 
 			}
 			
 		} else if (null != s3Client) {
-			S3Object o = s3Client.getObject(new GetObjectRequest(s3Bucket, getS3Key(file)));
-			if (null != o) {
-				try (InputStream is = o.getObjectContent()) {
-					return IOUtils.toString(is);
-				}
+			try {
+				S3Object o = s3Client.getObject(new GetObjectRequest(s3Bucket, getS3Key(file)));
+				if (null != o) 
+					return o.getObjectContent();
+			} catch (AmazonS3Exception e) {
+				if (e.getStatusCode() != HTTP_NOT_FOUND)
+					throw e;
 			}
 		}
 		
 		return null;
 	}
 
-	private void saveCacheFile(String file, String json) throws IOException {
-		if (null != file && null != json && !json.isEmpty()) {
-			if (null != cache) {
-				FileUtils.write(new File(cache, file), json);
-			} else if (null != s3Client) {
-				byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-				
+	private Date getCachedFileTime(String file) {
+		if (null != cache) {
+			File f = new File(cache, file);
+			if (f.exists() && !f.isDirectory()) 
+				return new Date(f.lastModified());
+		} else if (null != s3Client) {
+			try {
+				return s3Client.getObjectMetadata(s3Bucket, getS3Key(file)).getLastModified();
+			} catch (AmazonS3Exception e) {
+				if (e.getStatusCode() != HTTP_NOT_FOUND)
+					throw e;
+			}
+		}
+		
+		return null;
+	}
+	
+	private boolean isCacheExpired(String file) {
+		if (cacheTtl <= 0)
+			return false;
+		
+		Date fetched = getCachedFileTime(file);
+		return null != fetched && System.currentTimeMillis() - fetched.getTime() > cacheTtl;
+	}
+
+	/**
+	 * Store a downloaded response in the cache while it is being parsed. 
+	 * Local cache receives the bytes as the parser reads them, S3 cache receives the buffered response.
+	 * The file is cached even if the parser fails.
+	 * @param file String containing the cache file name
+	 * @param is InputStream with the response body
+	 * @param parser Parser to read the response, or null if response should only be cached
+	 * @return parsed object or null if parser is null
+	 * @throws IOException
+	 */
+	private <T> T saveCacheFile(String file, InputStream is, CacheParser<T> parser) throws IOException {
+		if (null != cache) {
+			File f = new File(cache, file);
+			// every download gets its own temporary file, the same work may be fetched by several threads at once
+			File tmp = Files.createTempFile(f.getParentFile().toPath(), f.getName(), EXT_TMP).toFile();
+			boolean complete = false;
+			try {
+				try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp));
+					 InputStream tee = new TeeInputStream(is, os)) {
+					try {
+						return null == parser ? null : parser.parse(tee);
+					} finally {
+						// the parser may stop before the end of the document
+						IOUtils.copy(tee, NullOutputStream.NULL_OUTPUT_STREAM);
+						complete = true;
+					}
+				} finally {
+					if (complete && tmp.length() > 0)
+						Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				// only left behind by an empty or interrupted download
+				tmp.delete();
+			}
+		} else if (null != s3Client) {
+			byte[] bytes = IOUtils.toByteArray(is);
+			if (bytes.length > 0) {
 				ObjectMetadata metadata = new ObjectMetadata();
 		        metadata.setContentEncoding(StandardCharsets.UTF_8.name());
 		        metadata.setContentType("text/json");
 		        metadata.setContentLength(bytes.length);
 		
-		        InputStream inputStream = new ByteArrayInputStream(bytes);
-				
-				s3Client.putObject(new PutObjectRequest(s3Bucket, getS3Key(file), inputStream, metadata));
+				s3Client.putObject(new PutObjectRequest(s3Bucket, getS3Key(file), new ByteArrayInputStream(bytes), metadata));
 			}
-		}
+			
+			return null == parser ? null : parser.parse(new ByteArrayInputStream(bytes));
+		} 
+		
+		return null == parser ? null : parser.parse(is);
 	}
 	
-	private String getWork(String encodedDoi) {
+	private InputStream getWork(String encodedDoi) {
 		return get(URL_CROSSREF_WORKDS + "/" + encodedDoi.replace("%2F", "/"));
 	}
 	
-	private String getAuthority(String encodedDoi) {
-		return get(URL_CROSSREF_DOI_RA + "/" + encodedDoi.replace("%2F", "/"));
+	private InputStream getAuthority(String encodedDoi) {
+		return get(URL_CROSSREF_DOI_RA + "/" + encodedDoi.replace("%2F", "/"), authorityLimiter);
+	}
+	
+	private ItemList parseWorkList(InputStream is) throws JsonParseException, JsonMappingException, IOException {
+		Response<ItemList> response = mapper.readValue(is, itemListType);
+		
+		if (response.getStatus().equals(STATUS_OK) && 
+			response.getMessageType().equals(MESSAGE_WORK_LIST)) 
+			return response.getMessage();
+		else
+			return null;
 	}
 	
-	private Item parseWork(String json) throws JsonParseException, JsonMappingException, IOException {
-		Response<Item> response = mapper.readValue(json, itemType);
+	private Item parseWork(InputStream is) throws JsonParseException, JsonMappingException, IOException {
+		Response<Item> response = mapper.readValue(is, itemType);
 		
 		//System.out.println(response);
 		
@@ -325,8 +784,20 @@ public class CrossRef {
 			return null;
 	}
 	
-	private String parseAuthority(String json) throws JsonParseException, JsonMappingException, IOException {
-		List<Authority> authorities = mapper.readValue(json, authorityListType);
+	private Item parseWorkProjection(InputStream is) throws JsonParseException, IOException {
+		try (JsonParser p = mapper.getFactory().createParser(is)) {
+			return ItemProjection.parseResponse(p, STATUS_OK, MESSAGE_WORK);
+		}
+	}
+	
+	private boolean parseWorkRecord(InputStream is, WorkRecord record) throws JsonParseException, IOException {
+		try (JsonParser p = mapper.getFactory().createParser(is)) {
+			return ItemProjection.parseResponse(p, STATUS_OK, MESSAGE_WORK, record);
+		}
+	}
+	
+	private String parseAuthority(InputStream is) throws JsonParseException, JsonMappingException, IOException {
+		List<Authority> authorities = mapper.readValue(is, authorityListType);
 		
 		//System.out.println(response);
 		
@@ -345,6 +816,10 @@ public class CrossRef {
 	}
 	
 
+	private interface CacheParser<T> {
+		T parse(InputStream is) throws IOException;
+	}
+
 	public long getMaxAttempts() {
 		return maxAttempts;
 	}
@@ -367,5 +842,53 @@ public class CrossRef {
 
 	public void setDbaEnabled(boolean dbaEnabled) {
 		this.dbaEnabled = dbaEnabled;
-	}	
+	}
+
+	/**
+	 * @return time in milliseconds after which a cached work is downloaded again, 0 if cache never expires
+	 */
+	public long getCacheTtl() {
+		return cacheTtl;
+	}
+
+	public void setCacheTtl(long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+	}
+
+	public boolean isProjectionEnabled() {
+		return projectionEnabled;
+	}
+
+	public void setProjectionEnabled(boolean projectionEnabled) {
+		this.projectionEnabled = projectionEnabled;
+	}
+	
+	/**
+	 * @return RateLimiter of CrossRef API requests
+	 */
+	public RateLimiter getWorksLimiter() {
+		return worksLimiter;
+	}
+
+	public void setWorksLimiter(RateLimiter worksLimiter) {
+		this.worksLimiter = worksLimiter;
+	}
+
+	/**
+	 * @return RateLimiter of DOI registration agency requests
+	 */
+	public RateLimiter getAuthorityLimiter() {
+		return authorityLimiter;
+	}
+
+	public void setAuthorityLimiter(RateLimiter authorityLimiter) {
+		this.authorityLimiter = authorityLimiter;
+	}
+	
+	private static Client createClient() {
+		Client client = Client.create();
+		client.setConnectTimeout(CONNECT_TIMEOUT);
+		client.setReadTimeout(READ_TIMEOUT);
+		return client;
+	}
 }
@@ -1,23 +1,28 @@
 package org.researchgraph.crossref;
 
 import java.io.IOException;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.Locale;
-import java.util.TimeZone;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * Class to parse CrossRef Date object
+ * 
+ * The date object is read directly from the parser tokens without building a tree. 
+ * The timestamp has priority over date-time, what has priority over date-parts, 
+ * no matter in what order they appear. The class is thread safe.
+ * 
  * @author Dmitrij Kudriavcev, dmitrij@kudriavcev.info
  *
  */
@@ -26,48 +31,96 @@ public class CrossRefDateDeserializer  extends JsonDeserializer<Date> {
 	private static final String NODE_DATE_TIME = "date-time";
 	private static final String NODE_DATE_PARTS = "date-parts";
 	
-	private static final DateFormat df;
-	  
-	static {
-		df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssX", Locale.ENGLISH);
-		df.setTimeZone(TimeZone.getTimeZone("GMT"));
-	}
+	private static final int MAX_DATE_PARTS = 3;
+	
+	private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssX", Locale.ENGLISH);
 	
-
 	@Override
 	public Date deserialize(JsonParser p, DeserializationContext ctxt)
 			throws IOException, JsonProcessingException {
-		ObjectCodec oc = p.getCodec();
-		JsonNode node = oc.readTree(p);
+		Instant instant = parseInstant(p);
+		return null == instant ? null : Date.from(instant);
+	}
+	
+	/**
+	 * Parse CrossRef Date object
+	 * @param p JsonParser positioned at the start of the date object
+	 * @return Instant or null if date can not be parsed. 
+	 * The date-parts dates are returned as the start of a day in the default time zone.
+	 * @throws IOException
+	 */
+	public static Instant parseInstant(JsonParser p) throws IOException {
+		if (p.getCurrentToken() != JsonToken.START_OBJECT) {
+			p.skipChildren();
+			return null;
+		}
 		
-		final JsonNode nodeStamp = node.get(NODE_TIMESTAMP);
-		if (null != nodeStamp) 
-			return new Date(nodeStamp.asLong(0));
+		Long timestamp = null;
+		String dateTime = null;
+		LocalDate date = null;
 		
-		final JsonNode nodeTime = node.get(NODE_DATE_TIME);
-		if (null != nodeTime)
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken token = p.nextToken();
+			
+			if (NODE_TIMESTAMP.equals(field)) {
+				timestamp = token.isScalarValue() ? p.getValueAsLong(0) : 0;
+				p.skipChildren();
+			} else if (NODE_DATE_TIME.equals(field) && token == JsonToken.VALUE_STRING) 
+				dateTime = p.getText();
+			else if (NODE_DATE_PARTS.equals(field) && token == JsonToken.START_ARRAY) 
+				date = parseDateParts(p);
+			else 
+				p.skipChildren();
+		}
+		
+		if (null != timestamp)
+			return Instant.ofEpochMilli(timestamp);
+		
+		// malformed date-time falls back to date-parts
+		if (null != dateTime)
 			try {
-				return df.parse(nodeTime.asText());
-			} catch (ParseException e) {
-				e.printStackTrace();
-			}  
-
-		final JsonNode nodeParts = node.get(NODE_DATE_PARTS);
-		if (null != nodeParts && nodeParts.isArray()) {
-			for (final JsonNode nodePart : nodeParts) {
-				if (nodePart.isArray()) {
-					switch (nodePart.size()) {
-					case 1:
-						return new GregorianCalendar(nodePart.get(0).asInt(), 0, 1).getTime();
-					case 2:
-						return new GregorianCalendar(nodePart.get(0).asInt(), nodePart.get(1).asInt()-1, 1).getTime();
-					case 3:
-						return new GregorianCalendar(nodePart.get(0).asInt(), nodePart.get(1).asInt()-1, nodePart.get(2).asInt()).getTime();
-					}
-				}			
+				return OffsetDateTime.parse(dateTime, df).toInstant();
+			} catch (DateTimeParseException e) {
 			}
-		}
-
+		
+		if (null != date)
+			return date.atStartOfDay(ZoneId.systemDefault()).toInstant();
+		
 		return null;
 	}
+	
+	/**
+	 * Parse the first date-parts entry with one to three parts. 
+	 * Month and day out of range roll over, as in a lenient calendar.
+	 */
+	private static LocalDate parseDateParts(JsonParser p) throws IOException {
+		LocalDate date = null;
+		int[] parts = new int[MAX_DATE_PARTS];
+		
+		for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+			if (token != JsonToken.START_ARRAY) {
+				p.skipChildren();
+				continue;
+			}
+			
+			int size = 0;
+			for (token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+				if (size < MAX_DATE_PARTS) 
+					parts[size] = token.isScalarValue() ? p.getValueAsInt(0) : 0;
+				++size;
+				p.skipChildren();
+			}
+			
+			if (null == date && size > 0 && size <= MAX_DATE_PARTS) {
+				date = LocalDate.of(parts[0], 1, 1);
+				if (size > 1)
+					date = date.plusMonths(parts[1] - 1);
+				if (size > 2)
+					date = date.plusDays(parts[2] - 1);
+			}
+		}
+		
+		return date;
+	}
 }
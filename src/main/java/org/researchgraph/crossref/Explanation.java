@@ -17,7 +17,7 @@ public class Explanation {
 
 	@JsonAnySetter
 	public void handleUnknown(String key, Object value) {
-		System.out.println("Warning. Ignoring Explanation property: " + key + " with value: " + value);			
+		UnknownProperties.handle(Explanation.class, key);
 	}
 	
 	@Override
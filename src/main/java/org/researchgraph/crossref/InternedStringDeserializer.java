@@ -0,0 +1,52 @@
+package org.researchgraph.crossref;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+/**
+ * Class to deserialize low cardinality CrossRef values (publisher, type, member, prefix, source, license URL) 
+ * into shared String instances. 
+ * Container titles and affiliation names should use {@link Names}, what has a larger pool.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class InternedStringDeserializer extends JsonDeserializer<String> {
+	public static final StringInterner values = new StringInterner("values", 1 << 16);
+	public static final StringInterner names = new StringInterner("names", 1 << 20);
+	
+	@Override
+	public String deserialize(JsonParser p, DeserializationContext ctxt)
+			throws IOException, JsonProcessingException {
+		String value = p.getValueAsString();
+		if (null == value)
+			throw ctxt.mappingException(String.class);
+		
+		return getInterner().intern(value);
+	}
+	
+	/**
+	 * Print the pools statistics
+	 * @param out PrintStream
+	 */
+	public static void printSummary(PrintStream out) {
+		out.println(values);
+		out.println(names);
+	}
+	
+	protected StringInterner getInterner() {
+		return values;
+	}
+	
+	public static class Names extends InternedStringDeserializer {
+		@Override
+		protected StringInterner getInterner() {
+			return names;
+		}
+	}
+}
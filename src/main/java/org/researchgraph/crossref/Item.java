@@ -1,7 +1,7 @@
 package org.researchgraph.crossref;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -57,14 +57,14 @@ public class Item {
 	
 	private double score;
 	
-	private static DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
 	
 	public List<String> getSubtitle() {
 		return subtitle;
 	}
 	
 	public void setSubtitle(List<String> subtitle) {
-		if (!subtitle.isEmpty())
+		if (null != subtitle && !subtitle.isEmpty())
 			this.subtitle = subtitle;
 		else
 			this.subtitle = null;
@@ -76,7 +76,7 @@ public class Item {
 	}
 	
 	public void setSubject(List<String> subject) {
-		if (!subject.isEmpty())
+		if (null != subject && !subject.isEmpty())
 			this.subject = subject;
 		else
 			this.subject = null;
@@ -93,7 +93,7 @@ public class Item {
 	
 	public String getIssuedString() {
 		if (null != issued)
-			return df.format(issued);
+			return df.format(issued.toInstant());
 		
 		return null;
 	}
@@ -110,6 +110,7 @@ public class Item {
 		return prefix;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setPrefix(final String prefix) {
 		this.prefix = prefix;
 	}
@@ -119,7 +120,7 @@ public class Item {
 	}
 	
 	public void setAuthor(List<Author> author) {
-		if (!author.isEmpty())
+		if (null != author && !author.isEmpty())
 			this.author = author;
 		else
 			this.author = null;
@@ -142,7 +143,7 @@ public class Item {
 	}
 	
 	public void setEditor(List<Author> editor) {
-		if (!editor.isEmpty())
+		if (null != editor && !editor.isEmpty())
 			this.editor = editor;
 		else
 			this.editor = null;			
@@ -165,8 +166,9 @@ public class Item {
 	}
 	
 	@JsonProperty("container-title")
+	@JsonDeserialize(contentUsing = InternedStringDeserializer.Names.class)
 	public void setContainerTitle(List<String> containerTitle) {
-		if (!containerTitle.isEmpty())
+		if (null != containerTitle && !containerTitle.isEmpty())
 			this.containerTitle = containerTitle;
 		else
 			this.containerTitle = null;
@@ -201,7 +203,7 @@ public class Item {
 	
 	public String getDepositedString() {
 		if (null != deposited)
-			return df.format(deposited);
+			return df.format(deposited.toInstant());
 		
 		return null;
 	}
@@ -219,7 +221,7 @@ public class Item {
 	}
 	
 	public void setTitle(List<String> title) {
-		if (!title.isEmpty())
+		if (null != title && !title.isEmpty())
 			this.title = title;
 		else
 			this.title = null;
@@ -229,6 +231,7 @@ public class Item {
 		return type;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setType(final String type) {
 		this.type = type;
 	}
@@ -250,7 +253,7 @@ public class Item {
 	
 	@JsonProperty("ISSN")
 	public void setIssn(List<String> issn) {
-		if (!issn.isEmpty())
+		if (null != issn && !issn.isEmpty())
 			this.issn = issn;
 		else
 			this.issn = null;
@@ -270,6 +273,7 @@ public class Item {
 		return source;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setSource(final String source) {
 		this.source = source;
 	}
@@ -278,6 +282,7 @@ public class Item {
 		return publisher;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setPublisher(final String publisher) {
 		this.publisher = publisher;
 	}	
@@ -293,7 +298,7 @@ public class Item {
 	
 	public String getIndexedString() {
 		if (null != indexed)
-			return df.format(indexed);
+			return df.format(indexed.toInstant());
 		
 		return null;
 	}
@@ -310,6 +315,7 @@ public class Item {
 		return member;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setMember(final String member) {
 		this.member = member;
 	}
@@ -331,7 +337,7 @@ public class Item {
 	}
 	
 	public void setFunder(List<Funder> funder) {
-		if (!funder.isEmpty())
+		if (null != funder && !funder.isEmpty())
 			this.funder = funder;
 		else
 			this.funder = null;
@@ -431,7 +437,7 @@ public class Item {
 
 	@JsonAnySetter
 	public void handleUnknown(String key, Object value) {
-		System.out.println("Warning. Ignoring Item property: " + key + " with value: " + value);			
+		UnknownProperties.handle(Item.class, key);
 	}
 
 	@Override
@@ -0,0 +1,248 @@
+package org.researchgraph.crossref;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming parser, what reads only the work fields used by the resolver 
+ * (DOI, title, issued date and author names with ORCID) and skips everything else 
+ * without binding it.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class ItemProjection {
+	private static final String FIELD_STATUS = "status";
+	private static final String FIELD_MESSAGE_TYPE = "message-type";
+	private static final String FIELD_MESSAGE = "message";
+	
+	private static final String FIELD_DOI = "DOI";
+	private static final String FIELD_TITLE = "title";
+	private static final String FIELD_ISSUED = "issued";
+	private static final String FIELD_AUTHOR = "author";
+	
+	private static final String FIELD_GIVEN = "given";
+	private static final String FIELD_FAMILY = "family";
+	private static final String FIELD_SUFFIX = "suffix";
+	private static final String FIELD_ORCID = "ORCID";
+	
+	/**
+	 * Parse CrossRef work response 
+	 * @param p JsonParser positioned before the response object
+	 * @param status expected response status
+	 * @param messageType expected message type
+	 * @return Item with projected fields or null if response status or type does not match
+	 * @throws IOException
+	 */
+	public static Item parseResponse(JsonParser p, String status, String messageType) throws IOException {
+		if (p.nextToken() != JsonToken.START_OBJECT)
+			return null;
+		
+		String responseStatus = null;
+		String responseType = null;
+		Item item = null;
+		
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			p.nextToken();
+			
+			if (FIELD_STATUS.equals(field))
+				responseStatus = p.getValueAsString();
+			else if (FIELD_MESSAGE_TYPE.equals(field))
+				responseType = p.getValueAsString();
+			else if (FIELD_MESSAGE.equals(field) && p.getCurrentToken() == JsonToken.START_OBJECT)
+				item = parseItem(p);
+			else
+				p.skipChildren();
+		}
+		
+		return status.equals(responseStatus) && messageType.equals(responseType) ? item : null;
+	}
+	
+	/**
+	 * Parse CrossRef work object
+	 * @param p JsonParser positioned at the start of the work object
+	 * @return Item with projected fields
+	 * @throws IOException
+	 */
+	public static Item parseItem(JsonParser p) throws IOException {
+		Item item = new Item();
+		
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken token = p.nextToken();
+			if (token == JsonToken.VALUE_NULL)
+				continue;
+			
+			if (FIELD_DOI.equals(field))
+				item.setDoi(p.getValueAsString());
+			else if (FIELD_TITLE.equals(field) && token == JsonToken.START_ARRAY)
+				item.setTitle(parseStrings(p));
+			else if (FIELD_ISSUED.equals(field) && token == JsonToken.START_OBJECT)
+				item.setIssued(toDate(CrossRefDateDeserializer.parseInstant(p)));
+			else if (FIELD_AUTHOR.equals(field) && token == JsonToken.START_ARRAY)
+				item.setAuthor(parseAuthors(p));
+			else
+				p.skipChildren();
+		}
+		
+		return item;
+	}
+	
+	/**
+	 * Parse CrossRef work response into a reusable record 
+	 * @param p JsonParser positioned before the response object
+	 * @param status expected response status
+	 * @param messageType expected message type
+	 * @param record WorkRecord to fill, it will be cleared first
+	 * @return true if response status and type does match
+	 * @throws IOException
+	 */
+	public static boolean parseResponse(JsonParser p, String status, String messageType, WorkRecord record) throws IOException {
+		record.clear();
+		if (p.nextToken() != JsonToken.START_OBJECT)
+			return false;
+		
+		boolean statusOk = false;
+		boolean typeOk = false;
+		
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			p.nextToken();
+			
+			if (FIELD_STATUS.equals(field))
+				statusOk = status.equals(p.getValueAsString());
+			else if (FIELD_MESSAGE_TYPE.equals(field))
+				typeOk = messageType.equals(p.getValueAsString());
+			else if (FIELD_MESSAGE.equals(field) && p.getCurrentToken() == JsonToken.START_OBJECT)
+				parseItem(p, record);
+			else
+				p.skipChildren();
+		}
+		
+		return statusOk && typeOk;
+	}
+	
+	/**
+	 * Parse CrossRef work object into a reusable record
+	 * @param p JsonParser positioned at the start of the work object
+	 * @param record WorkRecord to fill
+	 * @throws IOException
+	 */
+	public static void parseItem(JsonParser p, WorkRecord record) throws IOException {
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken token = p.nextToken();
+			if (token == JsonToken.VALUE_NULL)
+				continue;
+			
+			if (FIELD_DOI.equals(field))
+				record.setDoi(p.getValueAsString());
+			else if (FIELD_TITLE.equals(field) && token == JsonToken.START_ARRAY)
+				record.setTitle(parseFirstString(p));
+			else if (FIELD_ISSUED.equals(field) && token == JsonToken.START_OBJECT) {
+				Instant issued = CrossRefDateDeserializer.parseInstant(p);
+				if (null != issued)
+					record.setIssued(issued.toEpochMilli());
+			} else if (FIELD_AUTHOR.equals(field) && token == JsonToken.START_ARRAY) {
+				for (token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+					if (token == JsonToken.START_OBJECT)
+						parseAuthor(p, record.addAuthor());
+					else
+						p.skipChildren();
+				}
+			} else
+				p.skipChildren();
+		}
+	}
+	
+	private static void parseAuthor(JsonParser p, WorkRecord.AuthorRecord author) throws IOException {
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken token = p.nextToken();
+			if (!token.isScalarValue()) 
+				p.skipChildren();
+			else if (token == JsonToken.VALUE_NULL)
+				continue;
+			else if (FIELD_GIVEN.equals(field))
+				author.setGiven(p.getText());
+			else if (FIELD_FAMILY.equals(field))
+				author.setFamily(p.getText());
+			else if (FIELD_SUFFIX.equals(field))
+				author.setSuffix(p.getText());
+			else if (FIELD_ORCID.equals(field))
+				author.setOrcid(p.getText());
+		}
+	}
+	
+	private static String parseFirstString(JsonParser p) throws IOException {
+		String first = null;
+		boolean found = false;
+		for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+			if (!found && token.isScalarValue()) {
+				first = token == JsonToken.VALUE_NULL ? null : p.getText();
+				found = true;
+			} else
+				p.skipChildren();
+		}
+		
+		return first;
+	}
+	
+	private static Date toDate(Instant instant) {
+		return null == instant ? null : Date.from(instant);
+	}
+	
+	private static List<String> parseStrings(JsonParser p) throws IOException {
+		List<String> list = new ArrayList<String>();
+		for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+			if (token.isScalarValue())
+				list.add(token == JsonToken.VALUE_NULL ? null : p.getText());
+			else
+				p.skipChildren();
+		}
+		
+		return list;
+	}
+	
+	private static List<Author> parseAuthors(JsonParser p) throws IOException {
+		List<Author> list = new ArrayList<Author>();
+		for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+			if (token == JsonToken.START_OBJECT)
+				list.add(parseAuthor(p));
+			else
+				p.skipChildren();
+		}
+		
+		return list;
+	}
+	
+	private static Author parseAuthor(JsonParser p) throws IOException {
+		Author author = new Author();
+		
+		while (p.nextToken() == JsonToken.FIELD_NAME) {
+			String field = p.getCurrentName();
+			JsonToken token = p.nextToken();
+			if (!token.isScalarValue()) 
+				p.skipChildren();
+			else if (token == JsonToken.VALUE_NULL)
+				continue;
+			else if (FIELD_GIVEN.equals(field))
+				author.setGiven(p.getText());
+			else if (FIELD_FAMILY.equals(field))
+				author.setFamily(p.getText());
+			else if (FIELD_SUFFIX.equals(field))
+				author.setSuffix(p.getText());
+			else if (FIELD_ORCID.equals(field))
+				author.setOrcid(p.getText());
+		}
+		
+		return author;
+	}
+}
@@ -34,6 +34,7 @@ public class License {
 		return contentVersion;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setContentVersion(String contentVersion) {
 		this.contentVersion = contentVersion;
 	}
@@ -43,6 +44,7 @@ public class License {
 		return url;
 	}
 	
+	@JsonDeserialize(using = InternedStringDeserializer.class)
 	public void setUrl(String url) {
 		this.url = url;
 	}
@@ -0,0 +1,49 @@
+package org.researchgraph.crossref;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simple rate limiter, which spaces permits evenly. 
+ * 
+ * Permits are handed out in order of the calls, a caller sleeps until its slot. 
+ * Unused time is not saved up, so there are no bursts after idle periods.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class RateLimiter {
+	private final long interval;
+	
+	private long next;
+	
+	/**
+	 * @param permitsPerSecond maximal number of permits per second, 0 or less for unlimited
+	 */
+	public RateLimiter(double permitsPerSecond) {
+		this.interval = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+	}
+	
+	public boolean isLimited() {
+		return interval > 0;
+	}
+	
+	/**
+	 * Wait for a permit
+	 * @throws InterruptedException
+	 */
+	public void acquire() throws InterruptedException {
+		if (interval <= 0)
+			return;
+		
+		long slot;
+		synchronized (this) {
+			long now = System.nanoTime();
+			slot = Math.max(now, next);
+			next = slot + interval;
+		}
+		
+		long wait = slot - System.nanoTime();
+		if (wait > 0)
+			TimeUnit.NANOSECONDS.sleep(wait);
+	}
+}
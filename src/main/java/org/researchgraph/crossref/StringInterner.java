@@ -0,0 +1,94 @@
+package org.researchgraph.crossref;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded concurrent pool of String values. 
+ * 
+ * Equal values are replaced by a single shared instance. Once the pool is full, 
+ * new values are returned as they are, without being added to the pool. 
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class StringInterner {
+	private final String name;
+	private final int capacity;
+	private final ConcurrentMap<String, String> pool;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	
+	public StringInterner(String name, int capacity) {
+		this.name = name;
+		this.capacity = capacity;
+		this.pool = new ConcurrentHashMap<String, String>();
+	}
+	
+	/**
+	 * Return shared instance of a value
+	 * @param value String, can be null
+	 * @return shared instance of the value, or the value itself if it is not pooled
+	 */
+	public String intern(String value) {
+		if (null == value)
+			return null;
+		
+		String pooled = pool.get(value);
+		if (null != pooled) {
+			hits.increment();
+			return pooled;
+		}
+		
+		misses.increment();
+		if (pool.size() >= capacity)
+			return value;
+		
+		pooled = pool.putIfAbsent(value, value);
+		return null == pooled ? value : pooled;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	public int getSize() {
+		return pool.size();
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	/**
+	 * @return share of values returned from the pool, between 0 and 1
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total > 0 ? (double) hits / total : 0;
+	}
+	
+	public void clear() {
+		pool.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "StringInterner [name=" + name + ", size=" + getSize() + "/" + capacity 
+				+ ", hits=" + getHits() + ", misses=" + getMisses() 
+				+ ", hitRate=" + String.format("%.1f%%", getHitRate() * 100) + "]";
+	}
+}
@@ -0,0 +1,126 @@
+package org.researchgraph.crossref;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Class to count CrossRef properties, what are not known to the model classes.
+ * 
+ * Counters are kept per class and property name and are safe to update from parallel parsers.
+ * They are exposed through JMX as org.researchgraph.crossref:type=UnknownProperties.
+ * In strict mode an unknown property fails the parsing, so schema drift can be detected.
+ * The strict mode can also be enabled with -Dcrossref.strict=true
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class UnknownProperties implements UnknownPropertiesMXBean {
+	public static final String PROPERTY_STRICT = "crossref.strict";
+	
+	private static final String OBJECT_NAME = "org.researchgraph.crossref:type=UnknownProperties";
+	
+	private static final ConcurrentMap<String, ConcurrentMap<String, LongAdder>> counters = new ConcurrentHashMap<>();
+	private static volatile boolean strict = Boolean.getBoolean(PROPERTY_STRICT);
+	
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new UnknownProperties(), new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Register an unknown property
+	 * @param type Class containing the property
+	 * @param key property name
+	 * @throws IllegalStateException in strict mode
+	 */
+	public static void handle(Class<?> type, String key) {
+		if (strict)
+			throw new IllegalStateException("Unknown " + type.getSimpleName() + " property: " + key);
+		
+		ConcurrentMap<String, LongAdder> properties = counters.get(type.getSimpleName());
+		if (null == properties)
+			properties = counters.computeIfAbsent(type.getSimpleName(), k -> new ConcurrentHashMap<>());
+		
+		LongAdder counter = properties.get(key);
+		if (null == counter)
+			counter = properties.computeIfAbsent(key, k -> new LongAdder());
+		
+		counter.increment();
+	}
+	
+	/**
+	 * @return sorted snapshot of the counters, keyed by Class.property
+	 */
+	public static Map<String, Long> snapshot() {
+		Map<String, Long> snapshot = new TreeMap<String, Long>();
+		for (Map.Entry<String, ConcurrentMap<String, LongAdder>> type : counters.entrySet()) 
+			for (Map.Entry<String, LongAdder> property : type.getValue().entrySet()) 
+				snapshot.put(type.getKey() + "." + property.getKey(), property.getValue().sum());
+		
+		return snapshot;
+	}
+	
+	/**
+	 * @return total number of ignored properties
+	 */
+	public static long total() {
+		long total = 0;
+		for (ConcurrentMap<String, LongAdder> properties : counters.values())
+			for (LongAdder counter : properties.values())
+				total += counter.sum();
+		
+		return total;
+	}
+	
+	public static void reset() {
+		counters.clear();
+	}
+	
+	/**
+	 * Print the counters summary
+	 * @param out PrintStream
+	 */
+	public static void printSummary(PrintStream out) {
+		Map<String, Long> snapshot = snapshot();
+		if (snapshot.isEmpty())
+			return;
+		
+		out.println("Warning. Ignored " + total() + " unknown properties:");
+		for (Map.Entry<String, Long> entry : snapshot.entrySet())
+			out.println("  " + entry.getKey() + ": " + entry.getValue());
+	}
+	
+	public static boolean isStrict() {
+		return strict;
+	}
+
+	public static void setStrict(boolean strict) {
+		UnknownProperties.strict = strict;
+	}
+	
+	@Override
+	public Map<String, Long> getCounters() {
+		return snapshot();
+	}
+
+	@Override
+	public long getTotal() {
+		return total();
+	}
+	
+	@Override
+	public boolean isStrictMode() {
+		return strict;
+	}
+}
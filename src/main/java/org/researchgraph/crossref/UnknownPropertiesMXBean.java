@@ -0,0 +1,14 @@
+package org.researchgraph.crossref;
+
+import java.util.Map;
+
+/**
+ * JMX interface to the unknown CrossRef properties counters
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public interface UnknownPropertiesMXBean {
+	Map<String, Long> getCounters();
+	long getTotal();
+	boolean isStrictMode();
+}
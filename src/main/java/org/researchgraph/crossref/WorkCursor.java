@@ -0,0 +1,311 @@
+package org.researchgraph.crossref;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lazy iterator over CrossRef works list, what uses deep paging cursors.
+ * 
+ * Items are parsed one at a time straight from the response stream, pages are never held in memory. 
+ * The request of the next page is sent in background as soon as its cursor is known, while 
+ * the current page is being consumed, and its response is only read once the current page is done. 
+ * 
+ * The cursor must be closed to stop the prefetching thread.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ * @param <T> Class to store the item
+ */
+public class WorkCursor<T> implements Iterator<T>, Closeable {
+	public static final String CURSOR_START = "*";
+	
+	private static final String FIELD_STATUS = "status";
+	private static final String FIELD_MESSAGE = "message";
+	private static final String FIELD_NEXT_CURSOR = "next-cursor";
+	private static final String FIELD_TOTAL_RESULTS = "total-results";
+	private static final String FIELD_ITEMS = "items";
+	
+	private static final String STATUS_OK = "ok";
+	
+	/**
+	 * Interface to download a page for a given cursor
+	 */
+	public interface PageLoader {
+		/**
+		 * @param cursor String cursor
+		 * @return InputStream with the page or null if page does not exists
+		 * @throws IOException
+		 */
+		InputStream load(String cursor) throws IOException;
+	}
+	
+	/**
+	 * Interface to read a single item
+	 */
+	public interface ItemReader<T> {
+		/**
+		 * @param p JsonParser positioned at the start of the item object, 
+		 * must be left at the end of the item object
+		 * @return item
+		 * @throws IOException
+		 */
+		T read(JsonParser p) throws IOException;
+	}
+	
+	private final JsonFactory factory;
+	private final PageLoader loader;
+	private final ItemReader<T> reader;
+	private final int rows;
+	private final ExecutorService executor;
+	
+	private Future<InputStream> nextPage;
+	private JsonParser parser;
+	private String nextCursor;
+	private long totalResults = -1;
+	private long pageItems;
+	private long items;
+	private T next;
+	private boolean finished;
+	
+	public WorkCursor(JsonFactory factory, PageLoader loader, ItemReader<T> reader, int rows) {
+		this.factory = factory;
+		this.loader = loader;
+		this.reader = reader;
+		this.rows = rows;
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "crossref-cursor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		prefetch(CURSOR_START);
+	}
+	
+	/**
+	 * @return Stream of items, what will close the cursor when closed
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, 
+				Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+	}
+	
+	/**
+	 * @return total number of results, reported by CrossRef or -1 if unknown yet
+	 */
+	public long getTotalResults() {
+		return totalResults;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (null == next && !finished) {
+			try {
+				next = advance();
+			} catch (IOException e) {
+				close();
+				throw new UncheckedIOException(e);
+			}
+		}
+		
+		return null != next;
+	}
+	
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		
+		T item = next;
+		next = null;
+		return item;
+	}
+	
+	@Override
+	public void close() {
+		finished = true;
+		discardPage();
+		executor.shutdownNow();
+		closeParser();
+	}
+	
+	private T advance() throws IOException {
+		for (;;) {
+			if (null == parser && !openPage()) {
+				close();
+				return null;
+			}
+			
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				++pageItems;
+				++items;
+				return reader.read(parser);
+			} else if (token == JsonToken.END_ARRAY) {
+				finishPage();
+			} else if (null == token) {
+				throw new IOException("Unexpected end of CrossRef works list");
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+	
+	private void prefetch(final String cursor) {
+		// only the connection is opened, the body is read by the parser of the page
+		nextPage = executor.submit(() -> {
+			InputStream is = loader.load(cursor);
+			if (null != is && Thread.currentThread().isInterrupted()) {
+				// cancelled while the connection was being opened
+				is.close();
+				return null;
+			}
+			
+			return is;
+		});
+	}
+	
+	/**
+	 * Cancel the prefetched page and close its connection, if it has been opened already
+	 */
+	private void discardPage() {
+		if (null == nextPage)
+			return;
+		
+		Future<InputStream> page = nextPage;
+		nextPage = null;
+		if (!page.cancel(true)) {
+			try {
+				InputStream is = page.get();
+				if (null != is)
+					is.close();
+			} catch (Exception e) {
+				// the page is not needed, errors of its download do not matter
+			}
+		}
+	}
+	
+	private InputStream takePage() throws IOException {
+		if (null == nextPage)
+			return null;
+		
+		try {
+			return nextPage.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading CrossRef page", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Unable to load CrossRef page", e.getCause());
+		} finally {
+			nextPage = null;
+		}
+	}
+	
+	/**
+	 * Open next page and position the parser inside the items array
+	 */
+	private boolean openPage() throws IOException {
+		InputStream page = takePage();
+		if (null == page) 
+			return false;
+		
+		// the parser closes the stream with itself
+		parser = factory.createParser(page);
+		nextCursor = null;
+		pageItems = 0;
+		
+		if (parser.nextToken() != JsonToken.START_OBJECT) 
+			return false;
+		
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			
+			if (FIELD_STATUS.equals(field) && !STATUS_OK.equals(parser.getValueAsString())) 
+				return false;
+			else if (FIELD_MESSAGE.equals(field) && token == JsonToken.START_OBJECT) {
+				if (openItems())
+					return true;
+			} else 
+				parser.skipChildren();
+		}
+		
+		return false;
+	}
+	
+	private boolean openItems() throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			
+			if (FIELD_ITEMS.equals(field) && token == JsonToken.START_ARRAY) {
+				// start loading next page while this one is being read
+				if (null != nextCursor && (totalResults < 0 || items + rows < totalResults))
+					prefetch(nextCursor);
+				return true;
+			} 
+			
+			readMessageField(field);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Read message fields after the items array and load next page if it has not been requested yet
+	 */
+	private void finishPage() throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			readMessageField(field);
+		}
+		
+		closeParser();
+		
+		if (0 == pageItems) {
+			// an empty page marks the end of the list
+			discardPage();
+		} else if (null == nextPage && null != nextCursor && (totalResults < 0 || items < totalResults))
+			prefetch(nextCursor);
+		
+		if (null == nextPage)
+			finished = true;
+	}
+	
+	private void readMessageField(String field) throws IOException {
+		if (FIELD_NEXT_CURSOR.equals(field)) 
+			nextCursor = parser.getValueAsString();
+		else if (FIELD_TOTAL_RESULTS.equals(field)) 
+			totalResults = parser.getValueAsLong(-1);
+		else
+			parser.skipChildren();
+	}
+	
+	private void closeParser() {
+		if (null != parser) {
+			try {
+				parser.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			
+			parser = null;
+		}
+	}
+}
@@ -0,0 +1,236 @@
+package org.researchgraph.crossref;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Mutable record with the work fields used by the resolver. 
+ * 
+ * A record is meant to be owned by a single thread and reused for every work it resolves: 
+ * the parser fills it in place and author slots are pooled, so no objects are kept 
+ * between works. The record is not thread safe.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class WorkRecord {
+	private static final int INITIAL_AUTHORS = 16;
+	
+	private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+	
+	private String doi;
+	private String title;
+	private long issued;
+	private boolean hasIssued;
+	
+	private AuthorRecord[] authors = new AuthorRecord[INITIAL_AUTHORS];
+	private int authorCount;
+	
+	public void clear() {
+		doi = null;
+		title = null;
+		hasIssued = false;
+		authorCount = 0;
+	}
+	
+	/**
+	 * Fill the record from a work
+	 * @param work Item
+	 * @return this record
+	 */
+	public WorkRecord set(Item work) {
+		clear();
+		
+		doi = work.getDoi();
+		if (null != work.getTitle() && !work.getTitle().isEmpty())
+			title = work.getTitle().get(0);
+		if (null != work.getIssued())
+			setIssued(work.getIssued().getTime());
+		
+		List<Author> list = work.getAuthor();
+		if (null != list)
+			for (Author author : list) 
+				addAuthor().set(author.getGiven(), author.getFamily(), author.getSuffix(), author.getOrcid());
+		
+		return this;
+	}
+	
+	/**
+	 * Copy another record into this one, reusing author slots
+	 * @param work WorkRecord
+	 * @return this record
+	 */
+	public WorkRecord set(WorkRecord work) {
+		clear();
+		
+		doi = work.doi;
+		title = work.title;
+		issued = work.issued;
+		hasIssued = work.hasIssued;
+		
+		for (int i = 0; i < work.authorCount; ++i) {
+			AuthorRecord author = work.authors[i];
+			addAuthor().set(author.given, author.family, author.suffix, author.orcid);
+		}
+		
+		return this;
+	}
+	
+	public String getDoi() {
+		return doi;
+	}
+
+	public void setDoi(String doi) {
+		this.doi = doi;
+	}
+
+	/**
+	 * @return the first work title
+	 */
+	public String getTitle() {
+		return title;
+	}
+
+	public void setTitle(String title) {
+		this.title = title;
+	}
+	
+	public boolean hasIssued() {
+		return hasIssued;
+	}
+	
+	/**
+	 * @param issued issued date in milliseconds since epoch
+	 */
+	public void setIssued(long issued) {
+		this.issued = issued;
+		this.hasIssued = true;
+	}
+
+	/**
+	 * @return issued date formatted as {@link Item#getIssuedString()} or null
+	 */
+	public String getIssuedString() {
+		return hasIssued ? df.format(Instant.ofEpochMilli(issued)) : null;
+	}
+	
+	public int getAuthorCount() {
+		return authorCount;
+	}
+	
+	public AuthorRecord getAuthor(int index) {
+		if (index < 0 || index >= authorCount)
+			throw new IndexOutOfBoundsException("Invalid author index: " + index);
+		
+		return authors[index];
+	}
+	
+	/**
+	 * Take next free author slot
+	 * @return cleared author record
+	 */
+	public AuthorRecord addAuthor() {
+		if (authorCount == authors.length) {
+			AuthorRecord[] grown = new AuthorRecord[authors.length * 2];
+			System.arraycopy(authors, 0, grown, 0, authors.length);
+			authors = grown;
+		}
+		
+		AuthorRecord author = authors[authorCount];
+		if (null == author) 
+			authors[authorCount] = author = new AuthorRecord();
+		else
+			author.clear();
+		
+		++authorCount;
+		return author;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("WorkRecord [doi=").append(doi)
+				.append(", title=").append(title)
+				.append(", issued=").append(getIssuedString())
+				.append(", authors=[");
+		for (int i = 0; i < authorCount; ++i) 
+			sb.append(i > 0 ? ", " : "").append(authors[i]);
+		
+		return sb.append("]]").toString();
+	}
+	
+	/**
+	 * Mutable author record
+	 */
+	public static class AuthorRecord {
+		private final StringBuilder fullName = new StringBuilder();
+		
+		private String given;
+		private String family;
+		private String suffix;
+		private String orcid;
+		
+		public void clear() {
+			given = null;
+			family = null;
+			suffix = null;
+			orcid = null;
+		}
+		
+		public void set(String given, String family, String suffix, String orcid) {
+			this.given = given;
+			this.family = family;
+			this.suffix = suffix;
+			this.orcid = orcid;
+		}
+		
+		public String getGiven() {
+			return given;
+		}
+		
+		public void setGiven(String given) {
+			this.given = given;
+		}
+		
+		public String getFamily() {
+			return family;
+		}
+		
+		public void setFamily(String family) {
+			this.family = family;
+		}
+		
+		public String getSuffix() {
+			return suffix;
+		}
+		
+		public void setSuffix(String suffix) {
+			this.suffix = suffix;
+		}
+		
+		public String getOrcid() {
+			return orcid;
+		}
+		
+		public void setOrcid(String orcid) {
+			this.orcid = orcid;
+		}
+		
+		/**
+		 * @return full name built as {@link Author#getFullName()}
+		 */
+		public String getFullName() {
+			fullName.setLength(0);
+			if (null != suffix && !suffix.isEmpty()) 
+				fullName.append(suffix).append(" ");
+			
+			return fullName.append(given).append(" ").append(family).toString();
+		}
+		
+		@Override
+		public String toString() {
+			return "AuthorRecord [suffix=" + suffix + ", family=" + family + ", given=" + given + ", orcid=" + orcid + "]";
+		}
+	}
+}
@@ -0,0 +1,304 @@
+package org.researchgraph.resolver;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded worker pools, one per registration agency, so a slow or unsupported agency
+ * can not hold up the others.
+ *
+ * Every lane has its own threads and a bounded queue: a submit blocks while the lane is full.
+ * Lanes are created on first use, the CrossRef and authority lanes with the configured number
+ * of threads, all other agencies with a single thread. Tasks may submit into other lanes,
+ * but never into a lane which submits back, or lanes can block each other.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class AgencyPools implements Closeable {
+	public static final String LANE_AUTHORITY = "doiRA";
+
+	private static final int QUEUE_PER_THREAD = 100;
+	private static final int DEFAULT_THREADS = 1;
+	// time given to running tasks to react on interrupt, once a lane is abandoned
+	private static final long ABANDON_GRACE = 5000;
+
+	private final Map<String, Lane> lanes = new ConcurrentHashMap<String, Lane>();
+	private final Map<String, Integer> threads = new ConcurrentHashMap<String, Integer>();
+	private final List<String> order = new ArrayList<String>();
+
+	/**
+	 * Task, which may throw
+	 */
+	public interface Task {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Worker pool of a single agency
+	 */
+	public static class Lane {
+		private final String name;
+		private final ExecutorService executor;
+		private final Semaphore capacity;
+		private final int threads;
+
+		private final LongAdder completed = new LongAdder();
+		private final LongAdder failed = new LongAdder();
+		private final LongAdder busy = new LongAdder();
+		private final long started = System.currentTimeMillis();
+
+		public Lane(String name, int threads) {
+			final AtomicInteger counter = new AtomicInteger();
+			ThreadFactory factory = r -> {
+				Thread thread = new Thread(r, "resolver-" + name + "-" + counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+
+			this.name = name;
+			this.threads = threads;
+			this.executor = Executors.newFixedThreadPool(threads, factory);
+			this.capacity = new Semaphore(threads * (QUEUE_PER_THREAD + 1));
+		}
+
+		/**
+		 * Submit a task, blocks while the lane is full
+		 * @param task Task
+		 * @throws InterruptedException
+		 */
+		public void submit(Task task) throws InterruptedException {
+			capacity.acquire();
+			try {
+				executor.execute(() -> {
+					long start = System.nanoTime();
+					try {
+						task.run();
+						completed.increment();
+					} catch (Exception e) {
+						failed.increment();
+						e.printStackTrace();
+					} finally {
+						busy.add(System.nanoTime() - start);
+						capacity.release();
+					}
+				});
+			} catch (RuntimeException e) {
+				capacity.release();
+				throw e;
+			}
+		}
+
+		/**
+		 * Wait until every submitted task has finished
+		 * @throws InterruptedException
+		 */
+		public void drain() throws InterruptedException {
+			int permits = threads * (QUEUE_PER_THREAD + 1);
+			capacity.acquire(permits);
+			capacity.release(permits);
+		}
+
+		/**
+		 * Wait until every submitted task has finished or the timeout has elapsed
+		 * @param timeout timeout in milliseconds
+		 * @return true if the lane is empty
+		 * @throws InterruptedException
+		 */
+		public boolean drain(long timeout) throws InterruptedException {
+			int permits = threads * (QUEUE_PER_THREAD + 1);
+			if (!capacity.tryAcquire(permits, Math.max(0, timeout), TimeUnit.MILLISECONDS))
+				return false;
+
+			capacity.release(permits);
+			return true;
+		}
+
+		/**
+		 * Drop queued tasks and interrupt running ones, the lane accepts no tasks afterwards,
+		 * but can still be drained
+		 * @return number of tasks which have not finished
+		 * @throws InterruptedException
+		 */
+		public int abandon() throws InterruptedException {
+			int pending = getPending();
+			long done = completed.sum();
+
+			// dropped tasks never run, so their capacity is given back here
+			List<Runnable> dropped = executor.shutdownNow();
+			capacity.release(dropped.size());
+			executor.awaitTermination(ABANDON_GRACE, TimeUnit.MILLISECONDS);
+
+			// tasks which complete in the grace period are not abandoned
+			return pending - (int) (completed.sum() - done);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCompleted() {
+			return completed.sum();
+		}
+
+		public long getFailed() {
+			return failed.sum();
+		}
+
+		/**
+		 * @return number of tasks submitted and not finished yet
+		 */
+		public int getPending() {
+			return threads * (QUEUE_PER_THREAD + 1) - capacity.availablePermits();
+		}
+
+		public void printSummary(PrintStream out) {
+			long elapsed = Math.max(1, System.currentTimeMillis() - started);
+			long tasks = completed.sum() + failed.sum();
+			out.println("Lane " + name + ": " + completed.sum() + " completed, " + failed.sum() + " failed, "
+					+ threads + " threads, " + tasks * 1000 / elapsed + " DOI's/s, "
+					+ (tasks > 0 ? TimeUnit.NANOSECONDS.toMillis(busy.sum() / tasks) : 0) + " ms per DOI");
+		}
+
+		private void shutdown() {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Set number of threads of an agency lane, must be called before the lane is used
+	 * @param agency agency name
+	 * @param threads number of threads
+	 */
+	public void setThreads(String agency, int threads) {
+		this.threads.put(agency, threads);
+	}
+
+	/**
+	 * @param agency agency name
+	 * @return Lane of the agency, created on first use
+	 */
+	public Lane lane(String agency) {
+		Lane lane = lanes.get(agency);
+		if (null == lane) {
+			synchronized (order) {
+				lane = lanes.get(agency);
+				if (null == lane) {
+					lane = new Lane(agency, threads.getOrDefault(agency, DEFAULT_THREADS));
+					lanes.put(agency, lane);
+					order.add(agency);
+				}
+			}
+		}
+
+		return lane;
+	}
+
+	/**
+	 * Submit a task into an agency lane, blocks while the lane is full
+	 * @param agency agency name
+	 * @param task Task
+	 * @throws InterruptedException
+	 */
+	public void submit(String agency, Task task) throws InterruptedException {
+		lane(agency).submit(task);
+	}
+
+	/**
+	 * Wait until every lane is empty. The authority lane is drained first, as it feeds the others.
+	 * @throws InterruptedException
+	 */
+	public void drain() throws InterruptedException {
+		Lane authority = lanes.get(LANE_AUTHORITY);
+		if (null != authority)
+			authority.drain();
+
+		for (Lane lane : getLanes())
+			lane.drain();
+	}
+
+	/**
+	 * Wait until every lane is empty or the timeout has elapsed
+	 * @param timeout timeout in milliseconds
+	 * @return true if all lanes are empty
+	 * @throws InterruptedException
+	 */
+	public boolean drain(long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+
+		Lane authority = lanes.get(LANE_AUTHORITY);
+		if (null != authority && !authority.drain(deadline - System.currentTimeMillis()))
+			return false;
+
+		for (Lane lane : getLanes())
+			if (!lane.drain(deadline - System.currentTimeMillis()))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Abandon all lanes, the authority lane first, as it feeds the others
+	 * @return number of tasks which have not finished
+	 * @throws InterruptedException
+	 */
+	public int abandon() throws InterruptedException {
+		int abandoned = 0;
+
+		Lane authority = lanes.get(LANE_AUTHORITY);
+		if (null != authority)
+			abandoned += authority.abandon();
+
+		for (Lane lane : getLanes())
+			if (lane != authority)
+				abandoned += lane.abandon();
+
+		return abandoned;
+	}
+
+	/**
+	 * @return lanes in order of creation
+	 */
+	public List<Lane> getLanes() {
+		List<Lane> list = new ArrayList<Lane>();
+		synchronized (order) {
+			for (String agency : order)
+				list.add(lanes.get(agency));
+		}
+
+		return list;
+	}
+
+	/**
+	 * @return number of failed tasks in all lanes
+	 */
+	public long getFailed() {
+		long failed = 0;
+		for (Lane lane : getLanes())
+			failed += lane.getFailed();
+
+		return failed;
+	}
+
+	public void printSummary(PrintStream out) {
+		for (Lane lane : getLanes())
+			lane.printSummary(out);
+	}
+
+	@Override
+	public void close() {
+		for (Lane lane : getLanes())
+			lane.shutdown();
+	}
+}
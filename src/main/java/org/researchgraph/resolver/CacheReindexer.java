@@ -0,0 +1,109 @@
+package org.researchgraph.resolver;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.Item;
+import org.researchgraph.crossref.WorkRecord;
+
+/**
+ * Class to rebuild the resolution tables from the works cache. 
+ * 
+ * Cached works are read and parsed in parallel and written into the resolution sink 
+ * by the calling thread, the sink writes them in batches. CrossRef API is never called.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class CacheReindexer {
+	private static final int QUEUE_SIZE = 500;
+	private static final int REPORT_INTERVAL = 10000;
+	
+	private static final Map.Entry<String, Item> END = new AbstractMap.SimpleImmutableEntry<String, Item>(null, null);
+	
+	private final CrossRef crossref;
+	private final ResolutionSink sink;
+	private final int threads;
+	
+	private final AtomicLong missing = new AtomicLong();
+	
+	public CacheReindexer(CrossRef crossref, ResolutionSink sink, int threads) {
+		this.crossref = crossref;
+		this.sink = sink;
+		this.threads = threads;
+	}
+	
+	public long reindex() throws Exception {
+		long started = System.currentTimeMillis();
+		
+		final List<String> dois = crossref.listCachedWorks();
+		System.out.println("Reindexing " + dois.size() + " cached works with " + threads + " threads");
+		
+		final BlockingQueue<Map.Entry<String, Item>> queue = new ArrayBlockingQueue<Map.Entry<String, Item>>(QUEUE_SIZE * threads);
+		final AtomicInteger position = new AtomicInteger();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			for (int i = 0; i < threads; ++i) {
+				executor.submit(() -> {
+					try {
+						for (int n = position.getAndIncrement(); n < dois.size(); n = position.getAndIncrement()) {
+							String doi = dois.get(n);
+							Item work = crossref.requestCachedWork(doi);
+							if (null != work)
+								queue.put(new AbstractMap.SimpleImmutableEntry<String, Item>(doi, work));
+							else
+								missing.incrementAndGet();
+						}
+					} finally {
+						queue.put(END);
+					}
+					
+					return null;
+				});
+			}
+			
+			long read = 0;
+			long written = 0;
+			WorkRecord record = new WorkRecord();
+			for (int finished = 0; finished < threads; ) {
+				Map.Entry<String, Item> entry = queue.take();
+				if (END == entry) {
+					++finished;
+					continue;
+				}
+				
+				// works are written under the canonical DOI, as the resolver writes them
+				String doi = DoiNormalizer.normalize(entry.getKey());
+				if (null != doi && null != record.set(entry.getValue()).getTitle()) {
+					sink.saveWork(null, doi, record);
+					++written;
+				}
+				
+				if (++read % REPORT_INTERVAL == 0) 
+					System.out.println("Processed " + read + " works, " + getRate(read, started) + " works/s");
+			}
+			
+			sink.flush();
+			
+			System.out.println("Done. Read " + read + " works, written " + written + ", unreadable " + missing.get() 
+				+ " in " + (System.currentTimeMillis() - started) / 1000 + " s (" + getRate(read, started) + " works/s)");
+			
+			return written;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private static long getRate(long works, long started) {
+		return works * 1000 / Math.max(1, System.currentTimeMillis() - started);
+	}
+}
@@ -0,0 +1,53 @@
+package org.researchgraph.resolver;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+/**
+ * Factory of pooled MySQL data sources. 
+ * 
+ * Connections use server side prepared statements, which are also cached by the driver, 
+ * and the pool keeps prepared statements of returned connections open for reuse.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class ConnectionPool {
+	private static final String DRIVER = "com.mysql.jdbc.Driver";
+	private static final String CONNECTION_PROPERTIES = "useServerPrepStmts=true;cachePrepStmts=true;prepStmtCacheSize=64;"
+			+ "allowLoadLocalInfile=true;characterEncoding=UTF-8";
+	private static final String VALIDATION_QUERY = "SELECT 1";
+	private static final int MAX_OPEN_STATEMENTS = 64;
+	// a starved borrow fails instead of blocking a worker forever
+	private static final long MAX_WAIT = 60000;
+	
+	/**
+	 * Create pooled data source. The data source must be closed by the caller.
+	 * @param host MySQL host
+	 * @param port MySQL port
+	 * @param user MySQL user
+	 * @param password MySQL password
+	 * @param database MySQL database
+	 * @param maxConnections maximal number of open connections
+	 * @return BasicDataSource
+	 */
+	public static BasicDataSource create(String host, int port, String user, String password, String database, int maxConnections) {
+		BasicDataSource dataSource = new BasicDataSource();
+		dataSource.setDriverClassName(DRIVER);
+		dataSource.setUrl("jdbc:mysql://" + host + ":" + port + "/" + database);
+		dataSource.setUsername(user);
+		dataSource.setPassword(password);
+		dataSource.setConnectionProperties(CONNECTION_PROPERTIES);
+		
+		dataSource.setMaxTotal(maxConnections);
+		dataSource.setMaxIdle(maxConnections);
+		dataSource.setMaxWaitMillis(MAX_WAIT);
+		dataSource.setDefaultAutoCommit(true);
+		dataSource.setValidationQuery(VALIDATION_QUERY);
+		dataSource.setTestOnBorrow(true);
+		
+		dataSource.setPoolPreparedStatements(true);
+		dataSource.setMaxOpenPreparedStatements(MAX_OPEN_STATEMENTS);
+		
+		return dataSource;
+	}
+}
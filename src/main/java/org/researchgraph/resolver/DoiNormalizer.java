@@ -0,0 +1,81 @@
+package org.researchgraph.resolver;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.researchgraph.graph.GraphUtils;
+
+/**
+ * Class to bring DOI's into canonical form before any cache or network access.
+ * 
+ * DOI's are case insensitive, so the canonical form is trimmed and lower case, 
+ * without doi: prefix or resolver URL. The result must look like a DOI: 10. directory 
+ * indicator, numeric registrant code, slash and a suffix without white space. 
+ * Counters of valid, changed and rejected DOI's are safe to update from parallel workers.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class DoiNormalizer {
+	private static final Pattern patternValid = Pattern.compile("^10\\.\\d{4,9}(\\.\\d+)*/\\S+$");
+	
+	private final LongAdder valid = new LongAdder();
+	private final LongAdder changed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	
+	/**
+	 * Normalize DOI
+	 * @param str String containing DOI or DOI URL
+	 * @return canonical DOI or null if the string does not contain a valid DOI
+	 */
+	public static String normalize(String str) {
+		if (null == str)
+			return null;
+		
+		// prefixes are matched in lower case only
+		String doi = GraphUtils.extractDoi(str.trim().toLowerCase(Locale.ROOT));
+		return null != doi && patternValid.matcher(doi).matches() ? doi : null;
+	}
+	
+	/**
+	 * Normalize DOI and count the result
+	 * @param str String containing DOI or DOI URL
+	 * @return canonical DOI or null if the string does not contain a valid DOI
+	 */
+	public String accept(String str) {
+		String doi = normalize(str);
+		if (null == doi) 
+			rejected.increment();
+		else {
+			valid.increment();
+			if (!doi.equals(str))
+				changed.increment();
+		}
+		
+		return doi;
+	}
+	
+	/**
+	 * @return number of valid DOI's, including changed
+	 */
+	public long getValid() {
+		return valid.sum();
+	}
+	
+	/**
+	 * @return number of valid DOI's, which canonical form differs from the source
+	 */
+	public long getChanged() {
+		return changed.sum();
+	}
+	
+	public long getRejected() {
+		return rejected.sum();
+	}
+	
+	public void printSummary(PrintStream out) {
+		out.println("DOI's valid: " + getValid() + ", normalized: " + getChanged() + ", rejected: " + getRejected());
+	}
+}
@@ -0,0 +1,297 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Class to group doi_resolution rows by canonical DOI, so every DOI is resolved only once.
+ *
+ * Rows are grouped in memory, in order of the first appearance of every DOI. Once more than
+ * memoryBudget rows are held, the groups are sorted by DOI and spilled into a temporary run file.
+ * If anything has been spilled, groups are returned by merging all runs, in DOI order.
+ * DOI's must not contain white space, which is guaranteed by {@link DoiNormalizer}.
+ * Temporary files are deleted on close.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class DuplicateCollapser implements Closeable {
+	private static final String FILE_PREFIX = "doi-groups-";
+	private static final String EXT_RUN = ".run";
+	private static final char SEPARATOR = '\t';
+	private static final char ID_SEPARATOR = ',';
+
+	private static final long[] NO_IDS = new long[0];
+
+	private final int memoryBudget;
+	private final File tempFolder;
+
+	private final Map<String, long[]> groups = new LinkedHashMap<String, long[]>();
+	private final List<File> runs = new ArrayList<File>();
+	private final List<BufferedReader> readers = new ArrayList<BufferedReader>();
+
+	private int held;
+	private long rows;
+	private long dois;
+	private long duplicates;
+
+	/**
+	 * Rows with the same canonical DOI
+	 */
+	public static class Group {
+		private final String doi;
+		private final long[] ids;
+
+		public Group(String doi, long[] ids) {
+			this.doi = doi;
+			this.ids = ids;
+		}
+
+		public String getDoi() {
+			return doi;
+		}
+
+		/**
+		 * @return ids of doi_resolution rows, in order they have been added, or ascending if groups have been merged
+		 */
+		public long[] getIds() {
+			return ids;
+		}
+	}
+
+	/**
+	 * @param memoryBudget maximal number of rows to group in memory before spilling to disk
+	 * @param tempFolder Folder for temporary files or null to use system default
+	 */
+	public DuplicateCollapser(int memoryBudget, File tempFolder) {
+		if (memoryBudget <= 0)
+			throw new IllegalArgumentException("Invalid memory budget: " + memoryBudget);
+
+		this.memoryBudget = memoryBudget;
+		this.tempFolder = tempFolder;
+	}
+
+	/**
+	 * Add doi_resolution row
+	 * @param id row id
+	 * @param doi canonical DOI
+	 * @throws IOException
+	 */
+	public void add(long id, String doi) throws IOException {
+		long[] ids = groups.get(doi);
+		if (null == ids) {
+			ids = new long[] { id };
+			++dois;
+		} else {
+			ids = Arrays.copyOf(ids, ids.length + 1);
+			ids[ids.length - 1] = id;
+			++duplicates;
+		}
+
+		groups.put(doi, ids);
+		++rows;
+
+		if (++held >= memoryBudget)
+			spill();
+	}
+
+	/**
+	 * @return number of added rows
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return number of distinct DOI's, after groups have been iterated,
+	 * DOI's spilled into several runs are only counted exactly after the merge
+	 */
+	public long getDois() {
+		return dois;
+	}
+
+	/**
+	 * @return number of rows collapsed into the group of an earlier row with the same DOI, 
+	 * duplicates spilled into different runs are only counted once their groups have been merged
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Iterate over groups. Must be called once, after all rows have been added.
+	 * @return Iterator of groups
+	 * @throws IOException
+	 */
+	public Iterator<Group> groups() throws IOException {
+		if (runs.isEmpty()) {
+			final Iterator<Map.Entry<String, long[]>> it = groups.entrySet().iterator();
+			return new Iterator<Group>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Group next() {
+					Map.Entry<String, long[]> entry = it.next();
+					// the group is released as soon as it has been returned
+					it.remove();
+					return new Group(entry.getKey(), entry.getValue());
+				}
+			};
+		}
+
+		spill();
+
+		// DOI's spilled into several runs are counted again while merging
+		dois = 0;
+		return new RunMerger();
+	}
+
+	@Override
+	public void close() throws IOException {
+		groups.clear();
+
+		for (BufferedReader reader : readers) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		readers.clear();
+
+		for (File run : runs)
+			run.delete();
+		runs.clear();
+	}
+
+	private void spill() throws IOException {
+		if (groups.isEmpty())
+			return;
+
+		List<Map.Entry<String, long[]>> sorted = new ArrayList<Map.Entry<String, long[]>>(groups.entrySet());
+		sorted.sort(Map.Entry.comparingByKey());
+
+		File run = File.createTempFile(FILE_PREFIX, EXT_RUN, tempFolder);
+		runs.add(run);
+		try (Writer w = Files.newBufferedWriter(run.toPath(), StandardCharsets.UTF_8)) {
+			for (Map.Entry<String, long[]> entry : sorted) {
+				w.append(entry.getKey()).append(SEPARATOR);
+				long[] ids = entry.getValue();
+				for (int i = 0; i < ids.length; ++i) {
+					if (i > 0)
+						w.append(ID_SEPARATOR);
+					w.append(Long.toString(ids[i]));
+				}
+				w.append('\n');
+			}
+		}
+
+		groups.clear();
+		held = 0;
+	}
+
+	/**
+	 * Run file positioned at its current group
+	 */
+	private static class Run implements Comparable<Run> {
+		private final BufferedReader reader;
+		private String doi;
+		private long[] ids;
+
+		public Run(BufferedReader reader) {
+			this.reader = reader;
+		}
+
+		public boolean advance() throws IOException {
+			String line = reader.readLine();
+			if (null == line)
+				return false;
+
+			int pos = line.indexOf(SEPARATOR);
+			doi = line.substring(0, pos);
+
+			String[] parts = line.substring(pos + 1).split(String.valueOf(ID_SEPARATOR));
+			ids = new long[parts.length];
+			for (int i = 0; i < parts.length; ++i)
+				ids[i] = Long.parseLong(parts[i]);
+
+			return true;
+		}
+
+		@Override
+		public int compareTo(Run o) {
+			return doi.compareTo(o.doi);
+		}
+	}
+
+	/**
+	 * K-way merge of sorted runs, groups of the same DOI from different runs are joined
+	 */
+	private class RunMerger implements Iterator<Group> {
+		private final PriorityQueue<Run> queue = new PriorityQueue<Run>();
+
+		public RunMerger() throws IOException {
+			for (File file : runs) {
+				BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+				readers.add(reader);
+
+				Run run = new Run(reader);
+				if (run.advance())
+					queue.add(run);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public Group next() {
+			if (queue.isEmpty())
+				throw new NoSuchElementException();
+
+			String doi = queue.peek().doi;
+			long[] ids = NO_IDS;
+			try {
+				while (!queue.isEmpty() && queue.peek().doi.equals(doi)) {
+					Run run = queue.poll();
+
+					// the first row of every further run has not been counted as duplicate yet
+					if (ids.length > 0)
+						++duplicates;
+
+					long[] joined = Arrays.copyOf(ids, ids.length + run.ids.length);
+					System.arraycopy(run.ids, 0, joined, ids.length, run.ids.length);
+					ids = joined;
+
+					if (run.advance())
+						queue.add(run);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to read DOI groups", e);
+			}
+
+			// parts of a group may come from runs in any order
+			Arrays.sort(ids);
+			++dois;
+			return new Group(doi, ids);
+		}
+	}
+}
@@ -0,0 +1,144 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.researchgraph.crossref.WorkRecord;
+import org.researchgraph.graph.GraphUtils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Resolution sink writing one JSON object per line. 
+ * 
+ * Authorities are written as {"type":"authority","doi":...,"authority":...}, rows without valid DOI 
+ * as {"type":"invalid","id":...,"doi":...} and works as 
+ * {"type":"work","id":...,"doi":...,"url":...,"title":...,"year":...,"authors":[...]}. 
+ * DOI's without a work are written as {"type":"unresolved","id":...,"doi":...,"authority":...}.
+ * Output is flushed every batchSize records.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class JsonLinesSink implements ResolutionSink {
+	public static final String TYPE_AUTHORITY = "authority";
+	public static final String TYPE_WORK = "work";
+	public static final String TYPE_INVALID = "invalid";
+	public static final String TYPE_UNRESOLVED = "unresolved";
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private static final JsonFactory factory = new JsonFactory();
+	
+	private final JsonGenerator generator;
+	private final int batchSize;
+	
+	private int buffered;
+	
+	/**
+	 * @param os OutputStream
+	 * @param closeOutput true to close the stream with the sink, false for stdout
+	 * @param batchSize number of records to write at once
+	 * @throws IOException
+	 */
+	public JsonLinesSink(OutputStream os, boolean closeOutput, int batchSize) throws IOException {
+		this.generator = factory.createGenerator(new BufferedOutputStream(os, BUFFER_SIZE), JsonEncoding.UTF8);
+		this.generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, closeOutput);
+		// lines are separated explicitly, without the default space between root values
+		this.generator.setRootValueSeparator(null);
+		this.batchSize = batchSize;
+	}
+	
+	@Override
+	public synchronized void saveAuthority(String doi, String authority) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("type", TYPE_AUTHORITY);
+		generator.writeStringField("doi", doi);
+		generator.writeStringField("authority", authority);
+		generator.writeEndObject();
+		
+		written();
+	}
+
+	@Override
+	public synchronized void saveInvalid(long resolutionId, String doi) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("type", TYPE_INVALID);
+		generator.writeNumberField("id", resolutionId);
+		generator.writeStringField("doi", doi);
+		generator.writeEndObject();
+		
+		written();
+	}
+
+	/**
+	 * Write a DOI which could not be resolved into a work
+	 * @param id record id
+	 * @param doi DOI
+	 * @param authority registration agency or null if it is unknown
+	 * @throws IOException
+	 */
+	public synchronized void saveUnresolved(long id, String doi, String authority) throws IOException {
+		generator.writeStartObject();
+		generator.writeStringField("type", TYPE_UNRESOLVED);
+		generator.writeNumberField("id", id);
+		generator.writeStringField("doi", doi);
+		if (null != authority)
+			generator.writeStringField("authority", authority);
+		generator.writeEndObject();
+		
+		written();
+	}
+
+	@Override
+	public synchronized void saveWork(Long resolutionId, String doi, WorkRecord work) throws IOException {
+		if (null == work.getTitle())
+			return;
+		
+		generator.writeStartObject();
+		generator.writeStringField("type", TYPE_WORK);
+		if (null != resolutionId)
+			generator.writeNumberField("id", resolutionId);
+		generator.writeStringField("doi", doi);
+		generator.writeStringField("url", GraphUtils.generateDoiUri(doi));
+		generator.writeStringField("title", work.getTitle());
+		generator.writeStringField("year", work.getIssuedString());
+		
+		generator.writeArrayFieldStart("authors");
+		for (int i = 0; i < work.getAuthorCount(); ++i) {
+			WorkRecord.AuthorRecord author = work.getAuthor(i);
+			generator.writeStartObject();
+			generator.writeStringField("first_name", author.getGiven());
+			generator.writeStringField("last_name", author.getFamily());
+			generator.writeStringField("full_name", author.getFullName());
+			generator.writeStringField("orcid", author.getOrcid());
+			generator.writeEndObject();
+		}
+		generator.writeEndArray();
+		
+		generator.writeEndObject();
+		
+		written();
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		buffered = 0;
+		generator.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		generator.close();
+	}
+	
+	private void written() throws IOException {
+		generator.writeRaw('\n');
+		
+		if (++buffered >= batchSize)
+			flush();
+	}
+}
@@ -0,0 +1,52 @@
+package org.researchgraph.resolver;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer helpers for the default MySQL LOAD DATA format: 
+ * tab separated fields, new line terminated rows, backslash escapes and \N for null.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+class LoadDataFormat {
+	static final String NULL = "\\N";
+	static final char SEPARATOR = '\t';
+	static final char EOL = '\n';
+	
+	/**
+	 * Write a row of fields
+	 * @param w Writer
+	 * @param fields field values, null values are written as \N
+	 * @throws IOException
+	 */
+	static void writeRow(Writer w, Object... fields) throws IOException {
+		for (int i = 0; i < fields.length; ++i) {
+			if (i > 0)
+				w.append(SEPARATOR);
+			writeField(w, null == fields[i] ? null : fields[i].toString());
+		}
+		
+		w.append(EOL);
+	}
+	
+	static void writeField(Writer w, String value) throws IOException {
+		if (null == value) {
+			w.append(NULL);
+			return;
+		}
+		
+		for (int i = 0; i < value.length(); ++i) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\\': w.append("\\\\"); break;
+			case '\t': w.append("\\t"); break;
+			case '\n': w.append("\\n"); break;
+			case '\r': w.append("\\r"); break;
+			case '\0': w.append("\\0"); break;
+			default: w.append(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.researchgraph.crossref.WorkRecord;
+import org.researchgraph.graph.GraphUtils;
+
+/**
+ * Bulk writer for doi_resolution and doi_author rows. 
+ * 
+ * Works and authors are buffered in local temporary files in MySQL load format and are flushed 
+ * with LOAD DATA LOCAL INFILE into temporary staging tables, once the number of buffered works 
+ * or the age of the oldest buffered work reaches a threshold. The staging tables are then 
+ * merged into the resolution tables according to the write mode, and authors are linked 
+ * to the final doi_resolution ids by joining on the work row number inside the batch.
+ * In upsert mode the source rows of every work are marked resolved as well, they may hold 
+ * the DOI in another form than the upserted row.
+ * 
+ * The age is also checked in background, so buffered works are flushed in time when no more works 
+ * are added. A failure of a background flush is reported by the next call of add or flush. 
+ * 
+ * The connection must allow local infile (allowLoadLocalInfile=true). 
+ * Temporary files are deleted after every flush, whether it succeeds or not.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class LoadDataWriter implements Closeable {
+	private static final String FILE_PREFIX = "doi-resolution-";
+	private static final String FILE_WORKS = "works";
+	private static final String FILE_AUTHORS = "authors";
+	private static final String FILE_SOURCES = "sources";
+	private static final String EXT_TSV = ".tsv";
+	
+	private static final String SQL_CREATE_WORKS = "CREATE TEMPORARY TABLE IF NOT EXISTS load_work ("
+			+ "rel INT NOT NULL PRIMARY KEY, id BIGINT NULL, doi VARCHAR(255) NOT NULL, url VARCHAR(1024), title TEXT, year VARCHAR(32)) "
+			+ "CHARACTER SET utf8mb4";
+	private static final String SQL_CREATE_AUTHORS = "CREATE TEMPORARY TABLE IF NOT EXISTS load_author ("
+			+ "rel INT NOT NULL, first_name TEXT, last_name TEXT, full_name TEXT, orcid VARCHAR(255), KEY (rel)) "
+			+ "CHARACTER SET utf8mb4";
+	private static final String SQL_CREATE_SOURCES = "CREATE TEMPORARY TABLE IF NOT EXISTS load_source ("
+			+ "rel INT NOT NULL, id BIGINT NOT NULL, KEY (rel))";
+	private static final String SQL_LOAD = "LOAD DATA LOCAL INFILE '%s' INTO TABLE %s CHARACTER SET utf8mb4 "
+			+ "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'";
+	
+	private final Connection con;
+	private final WriteMode writeMode;
+	private final int maxWorks;
+	private final long maxDelay;
+	private final File tempFolder;
+	private final ScheduledExecutorService timer;
+	
+	private File worksFile;
+	private File authorsFile;
+	private File sourcesFile;
+	private Writer works;
+	private Writer authors;
+	private Writer sources;
+	private int buffered;
+	private long firstBuffered;
+	private long flushed;
+	private Exception flushError;
+	
+	/**
+	 * @param con Connection to write into
+	 * @param writeMode WriteMode
+	 * @param maxWorks number of buffered works to flush at
+	 * @param maxDelay age in milliseconds of the oldest buffered work to flush at, 0 to flush by size only
+	 * @param tempFolder Folder for temporary files or null to use system default
+	 */
+	public LoadDataWriter(Connection con, WriteMode writeMode, int maxWorks, long maxDelay, File tempFolder) {
+		this.con = con;
+		this.writeMode = writeMode;
+		this.maxWorks = maxWorks;
+		this.maxDelay = maxDelay;
+		this.tempFolder = tempFolder;
+		
+		if (maxDelay > 0) {
+			timer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "load-data-timer");
+				thread.setDaemon(true);
+				return thread;
+			});
+			
+			long interval = Math.max(maxDelay / 4, 1);
+			timer.scheduleWithFixedDelay(this::flushExpired, interval, interval, TimeUnit.MILLISECONDS);
+		} else
+			timer = null;
+	}
+	
+	/**
+	 * Buffer resolved work with its authors. Works without title are ignored.
+	 * @param resolutionId id of the source doi_resolution row or null if there is none
+	 * @param doi String containing DOI
+	 * @param work WorkRecord
+	 * @throws IOException
+	 * @throws SQLException if buffer has been flushed and flush has failed
+	 */
+	public void add(Long resolutionId, String doi, WorkRecord work) throws IOException, SQLException {
+		add(resolutionId, null, doi, work);
+	}
+	
+	/**
+	 * Buffer resolved work with its authors. Works without title are ignored.
+	 * @param resolutionId id of the source doi_resolution row or null if there is none
+	 * @param rows ids of further source rows, marked resolved in upsert mode, or null
+	 * @param doi String containing DOI
+	 * @param work WorkRecord
+	 * @throws IOException
+	 * @throws SQLException if buffer has been flushed and flush has failed
+	 */
+	public synchronized void add(Long resolutionId, long[] rows, String doi, WorkRecord work) throws IOException, SQLException {
+		if (null == work.getTitle())
+			return;
+		
+		checkFlushError();
+		
+		if (null == works)
+			open();
+		
+		int rel = ++buffered;
+		LoadDataFormat.writeRow(works, rel, WriteMode.UPDATE == writeMode ? resolutionId : null, 
+				doi, GraphUtils.generateDoiUri(doi), work.getTitle(), work.getIssuedString());
+		
+		for (int i = 0; i < work.getAuthorCount(); ++i) {
+			WorkRecord.AuthorRecord author = work.getAuthor(i);
+			LoadDataFormat.writeRow(authors, rel, author.getGiven(), author.getFamily(), author.getFullName(), author.getOrcid());
+		}
+		
+		if (WriteMode.UPSERT == writeMode) {
+			if (null != resolutionId)
+				LoadDataFormat.writeRow(sources, rel, resolutionId);
+			if (null != rows)
+				for (long row : rows)
+					LoadDataFormat.writeRow(sources, rel, row);
+		}
+		
+		if (buffered >= maxWorks || isExpired())
+			flush();
+	}
+	
+	private boolean isExpired() {
+		return maxDelay > 0 && null != works && System.currentTimeMillis() - firstBuffered >= maxDelay;
+	}
+	
+	/**
+	 * Flush buffered works, once the oldest of them has reached the maximal age
+	 */
+	private synchronized void flushExpired() {
+		if (null != flushError || !isExpired())
+			return;
+		
+		try {
+			flush();
+		} catch (IOException | SQLException e) {
+			e.printStackTrace();
+			flushError = e;
+		}
+	}
+	
+	private void checkFlushError() throws IOException {
+		if (null != flushError) {
+			Exception e = flushError;
+			flushError = null;
+			throw new IOException("Unable to load buffered works in background", e);
+		}
+	}
+	
+	/**
+	 * Load all buffered works into the resolution tables in one transaction
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public synchronized void flush() throws IOException, SQLException {
+		checkFlushError();
+		
+		if (null == works)
+			return;
+		
+		try {
+			works.close();
+			authors.close();
+			sources.close();
+			works = null;
+			authors = null;
+			sources = null;
+			
+			load();
+			flushed += buffered;
+		} finally {
+			deleteFiles();
+			buffered = 0;
+		}
+	}
+	
+	/**
+	 * @return number of works loaded into the database
+	 */
+	public synchronized long getFlushed() {
+		return flushed;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		if (null != timer)
+			timer.shutdownNow();
+		
+		try {
+			flush();
+		} catch (SQLException e) {
+			throw new IOException("Unable to load buffered works", e);
+		} finally {
+			deleteFiles();
+		}
+	}
+	
+	private void open() throws IOException {
+		try {
+			worksFile = File.createTempFile(FILE_PREFIX + FILE_WORKS, EXT_TSV, tempFolder);
+			authorsFile = File.createTempFile(FILE_PREFIX + FILE_AUTHORS, EXT_TSV, tempFolder);
+			sourcesFile = File.createTempFile(FILE_PREFIX + FILE_SOURCES, EXT_TSV, tempFolder);
+			works = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(worksFile), StandardCharsets.UTF_8));
+			authors = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(authorsFile), StandardCharsets.UTF_8));
+			sources = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(sourcesFile), StandardCharsets.UTF_8));
+			firstBuffered = System.currentTimeMillis();
+		} catch (IOException e) {
+			deleteFiles();
+			throw e;
+		}
+	}
+	
+	private void load() throws SQLException {
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		try (Statement s = con.createStatement()) {
+			s.execute(SQL_CREATE_WORKS);
+			s.execute(SQL_CREATE_AUTHORS);
+			s.execute(SQL_CREATE_SOURCES);
+			s.execute("TRUNCATE TABLE load_work");
+			s.execute("TRUNCATE TABLE load_author");
+			s.execute("TRUNCATE TABLE load_source");
+			s.execute(String.format(SQL_LOAD, escapePath(worksFile), "load_work"));
+			s.execute(String.format(SQL_LOAD, escapePath(authorsFile), "load_author"));
+			s.execute(String.format(SQL_LOAD, escapePath(sourcesFile), "load_source"));
+			
+			switch (writeMode) {
+			case UPDATE:
+				// works of source rows, which have been deleted meanwhile, are dropped with their authors
+				s.executeUpdate("DELETE w FROM load_work w LEFT JOIN doi_resolution d ON d.id = w.id "
+						+ "WHERE w.id IS NOT NULL AND d.id IS NULL");
+				s.executeUpdate("UPDATE doi_resolution d JOIN load_work w ON d.id = w.id "
+						+ "SET d.url = w.url, d.title = w.title, d.year = w.year, d.resolved = NOW()");
+				// works without source row are upserted
+			case UPSERT:
+				s.executeUpdate("INSERT INTO doi_resolution (doi, url, title, year, resolved) "
+						+ "SELECT doi, url, title, year, NOW() FROM load_work WHERE id IS NULL ORDER BY rel "
+						+ "ON DUPLICATE KEY UPDATE url = VALUES(url), title = VALUES(title), year = VALUES(year), resolved = VALUES(resolved)");
+				s.executeUpdate("UPDATE load_work w JOIN doi_resolution d ON d.doi = w.doi SET w.id = d.id WHERE w.id IS NULL");
+				// source rows are only written in upsert mode
+				s.executeUpdate("UPDATE doi_resolution d JOIN load_source r ON d.id = r.id JOIN load_work w ON r.rel = w.rel "
+						+ "SET d.url = w.url, d.title = w.title, d.year = w.year, d.resolved = NOW() WHERE NOT (d.id <=> w.id)");
+				s.executeUpdate("DELETE a FROM doi_author a JOIN load_work w ON a.resolution_id = w.id");
+				break;
+				
+			case INSERT:
+				// ids are assigned explicitly, while both tables are locked, so authors can be linked by row number
+				s.execute("LOCK TABLES doi_resolution WRITE, doi_author WRITE");
+				try {
+					long base;
+					try (ResultSet rs = s.executeQuery("SELECT COALESCE(MAX(id), 0) FROM doi_resolution")) {
+						base = rs.next() ? rs.getLong(1) : 0;
+					}
+					
+					s.executeUpdate("UPDATE load_work SET id = rel + " + base);
+					s.executeUpdate("INSERT INTO doi_resolution (id, doi, url, title, year, resolved) "
+							+ "SELECT id, doi, url, title, year, NOW() FROM load_work ORDER BY rel");
+					insertAuthors(s);
+					con.commit();
+				} catch (SQLException e) {
+					// UNLOCK TABLES commits an active transaction, so it has to be rolled back first
+					con.rollback();
+					throw e;
+				} finally {
+					s.execute("UNLOCK TABLES");
+				}
+				return;
+			}
+			
+			insertAuthors(s);
+			con.commit();
+		} catch (SQLException e) {
+			con.rollback();
+			throw e;
+		} finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
+	
+	private static void insertAuthors(Statement s) throws SQLException {
+		s.executeUpdate("INSERT INTO doi_author (resolution_id, first_name, last_name, full_name, orcid) "
+				+ "SELECT w.id, a.first_name, a.last_name, a.full_name, a.orcid "
+				+ "FROM load_author a JOIN load_work w ON a.rel = w.rel WHERE w.id IS NOT NULL");
+	}
+	
+	private void deleteFiles() {
+		try {
+			if (null != works)
+				works.close();
+			if (null != authors)
+				authors.close();
+			if (null != sources)
+				sources.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		works = null;
+		authors = null;
+		sources = null;
+		
+		if (null != worksFile) 
+			worksFile.delete();
+		if (null != authorsFile) 
+			authorsFile.delete();
+		if (null != sourcesFile) 
+			sourcesFile.delete();
+		
+		worksFile = null;
+		authorsFile = null;
+		sourcesFile = null;
+	}
+	
+	private static String escapePath(File file) {
+		return file.getAbsolutePath().replace("\\", "\\\\").replace("'", "\\'");
+	}
+}
@@ -0,0 +1,467 @@
+package org.researchgraph.resolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
+
+import org.researchgraph.crossref.WorkRecord;
+import org.researchgraph.graph.GraphUtils;
+
+/**
+ * Resolution sink writing into the MySQL resolution tables.
+ *
+ * Every worker thread borrows its own connection with prepared statements and buffers up to
+ * batchSize works, which are written in one transaction with JDBC batches. Works can also be
+ * written with LOAD DATA in bulk, see {@link #setBulkLoad(int, long)}.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class MySqlSink implements ResolutionSink {
+	private final DataSource dataSource;
+	private final WriteMode writeMode;
+	private final int batchSize;
+
+	// every worker thread has its own connection with prepared statements
+	private final ThreadLocal<Session> sessions = new ThreadLocal<Session>();
+	private final Set<Session> openSessions = ConcurrentHashMap.newKeySet();
+
+	private volatile LoadDataWriter bulkWriter;
+	private Connection bulkConnection;
+
+	/**
+	 * Connection with prepared statements and buffered works, owned by a single worker thread.
+	 * Methods are synchronized only to let {@link MySqlSink#flush()} write buffers of other threads.
+	 */
+	private class Session implements Closeable {
+		private final Connection con;
+		private final PreparedStatement insertAuthority;
+		private final PreparedStatement insertWork;
+		private final PreparedStatement updateWork;
+		private final PreparedStatement upsertWork;
+		private final PreparedStatement updateSourceRow;
+		private final PreparedStatement insertAuthor;
+		private final PreparedStatement deleteAuthors;
+		private final PreparedStatement updateInvalid;
+
+		private final Long[] ids = new Long[batchSize];
+		private final long[][] sourceRows = new long[batchSize][];
+		private final String[] dois = new String[batchSize];
+		private final WorkRecord[] works = new WorkRecord[batchSize];
+		private final Long[] workIds = new Long[batchSize];
+		private int size;
+		private int authorities;
+		private int invalids;
+
+		public Session(Connection con) throws SQLException {
+			this.con = con;
+
+			this.insertAuthority = con.prepareStatement("INSERT INTO doi_autority SET doi=?, autority=?, created=NOW()");
+			this.insertWork = con.prepareStatement("INSERT INTO doi_resolution SET doi=?, url=?, title=?, year=?, resolved=NOW()", Statement.RETURN_GENERATED_KEYS);
+			// DOI of the source row is kept, rows with DOI's of the same canonical form would break the unique key
+			this.updateWork = con.prepareStatement("UPDATE doi_resolution SET url=?, title=?, year=?, resolved=NOW() WHERE id=?");
+			// LAST_INSERT_ID(id) makes the id of an updated row available as a generated key
+			this.upsertWork = con.prepareStatement("INSERT INTO doi_resolution SET doi=?, url=?, title=?, year=?, resolved=NOW() "
+					+ "ON DUPLICATE KEY UPDATE id=LAST_INSERT_ID(id), url=VALUES(url), title=VALUES(title), year=VALUES(year), resolved=VALUES(resolved)",
+					Statement.RETURN_GENERATED_KEYS);
+			// source rows of an upserted work may hold its DOI in another form, they are marked resolved by id
+			this.updateSourceRow = con.prepareStatement("UPDATE doi_resolution SET url=?, title=?, year=?, resolved=NOW() WHERE id=?");
+			this.insertAuthor = con.prepareStatement("INSERT INTO doi_author SET resolution_id=?, first_name=?, last_name=?, full_name=?, orcid=?");
+			this.deleteAuthors = con.prepareStatement("DELETE FROM doi_author WHERE resolution_id=?");
+			this.updateInvalid = con.prepareStatement("UPDATE doi_resolution SET invalid=1 WHERE id=?");
+		}
+
+		public synchronized void addAuthority(String doi, String authority) throws SQLException {
+			insertAuthority.setString(1, doi);
+			insertAuthority.setString(2, authority);
+			insertAuthority.addBatch();
+
+			if (++authorities >= batchSize)
+				flushAuthorities();
+		}
+
+		public synchronized void addInvalid(long resolutionId) throws SQLException {
+			updateInvalid.setLong(1, resolutionId);
+			updateInvalid.addBatch();
+
+			if (++invalids >= batchSize)
+				flushInvalids();
+		}
+
+		public synchronized void addWork(Long resolutionId, long[] rows, String doi, WorkRecord work) throws SQLException {
+			if (null == works[size])
+				works[size] = new WorkRecord();
+
+			ids[size] = resolutionId;
+			sourceRows[size] = rows;
+			dois[size] = doi;
+			works[size].set(work);
+
+			if (++size >= batchSize)
+				flushWorks();
+		}
+
+		public synchronized void flush() throws SQLException {
+			flushAuthorities();
+			flushInvalids();
+			flushWorks();
+		}
+
+		private void flushAuthorities() throws SQLException {
+			if (authorities > 0) {
+				authorities = 0;
+				insertAuthority.executeBatch();
+			}
+		}
+
+		private void flushInvalids() throws SQLException {
+			if (invalids > 0) {
+				invalids = 0;
+				updateInvalid.executeBatch();
+			}
+		}
+
+		private void flushWorks() throws SQLException {
+			if (0 == size)
+				return;
+
+			// update mode updates source rows and upserts works without one
+			boolean hasUpdates = false;
+			boolean hasInserts = false;
+			boolean hasSourceRows = false;
+
+			con.setAutoCommit(false);
+			try {
+				for (int i = 0; i < size; ++i) {
+					String doi = dois[i];
+					WorkRecord work = works[i];
+					workIds[i] = null;
+					if (isUpdate(ids[i])) {
+						updateWork.setString(1, GraphUtils.generateDoiUri(doi));
+						updateWork.setString(2, work.getTitle());
+						updateWork.setString(3, work.getIssuedString());
+						updateWork.setLong(4, ids[i]);
+						updateWork.addBatch();
+						hasUpdates = true;
+					} else if (WriteMode.INSERT == writeMode) {
+						setWorkParameters(insertWork, doi, GraphUtils.generateDoiUri(doi), work.getTitle(), work.getIssuedString());
+						insertWork.addBatch();
+						hasInserts = true;
+					} else {
+						// an updated row counts as two affected rows and yields two generated keys in a batch,
+						// so upserts are executed one by one to read the key of every row
+						setWorkParameters(upsertWork, doi, GraphUtils.generateDoiUri(doi), work.getTitle(), work.getIssuedString());
+						upsertWork.executeUpdate();
+						workIds[i] = getGeneratedKey(upsertWork, doi);
+
+						if (null != ids[i])
+							hasSourceRows |= addSourceRow(ids[i], workIds[i], doi, work);
+						if (null != sourceRows[i])
+							for (long row : sourceRows[i])
+								hasSourceRows |= addSourceRow(row, workIds[i], doi, work);
+					}
+				}
+
+				if (hasSourceRows)
+					updateSourceRow.executeBatch();
+
+				if (hasUpdates) {
+					int[] updated = updateWork.executeBatch();
+					for (int i = 0, u = 0; i < size; ++i)
+						if (isUpdate(ids[i]) && updated[u++] != 0)
+							workIds[i] = ids[i];
+				}
+
+				if (hasInserts) {
+					insertWork.executeBatch();
+
+					// generated keys of plain inserts are returned in the batch order
+					try (ResultSet rs = insertWork.getGeneratedKeys()) {
+						for (int i = 0; i < size; ++i) {
+							if (isUpdate(ids[i]))
+								continue;
+							if (!rs.next())
+								throw new SQLException("Missing generated key for work: " + dois[i]);
+							workIds[i] = rs.getLong(1);
+						}
+					}
+				}
+
+				for (int i = 0; i < size; ++i) {
+					Long workId = workIds[i];
+					if (null == workId)
+						continue;
+
+					if (WriteMode.INSERT != writeMode) {
+						deleteAuthors.setLong(1, workId);
+						deleteAuthors.addBatch();
+					}
+
+					WorkRecord work = works[i];
+					for (int n = 0; n < work.getAuthorCount(); ++n) {
+						WorkRecord.AuthorRecord author = work.getAuthor(n);
+						insertAuthor.setLong(1, workId);
+						insertAuthor.setString(2, author.getGiven());
+						insertAuthor.setString(3, author.getFamily());
+						insertAuthor.setString(4, author.getFullName());
+						insertAuthor.setString(5, author.getOrcid());
+						insertAuthor.addBatch();
+					}
+				}
+
+				if (WriteMode.INSERT != writeMode)
+					deleteAuthors.executeBatch();
+				insertAuthor.executeBatch();
+
+				con.commit();
+			} catch (SQLException e) {
+				con.rollback();
+
+				// batches of statements which have not been executed yet are discarded with the works
+				for (PreparedStatement statement : new PreparedStatement[] { updateWork, insertWork, updateSourceRow, deleteAuthors, insertAuthor })
+					statement.clearBatch();
+
+				throw e;
+			} finally {
+				Arrays.fill(sourceRows, 0, size, null);
+				size = 0;
+				con.setAutoCommit(true);
+			}
+		}
+
+		/**
+		 * Add a source row of an upserted work to the batch, unless it is the upserted row itself
+		 * @return true if the row has been added
+		 */
+		private boolean addSourceRow(long row, long workId, String doi, WorkRecord work) throws SQLException {
+			if (row == workId)
+				return false;
+
+			updateSourceRow.setString(1, GraphUtils.generateDoiUri(doi));
+			updateSourceRow.setString(2, work.getTitle());
+			updateSourceRow.setString(3, work.getIssuedString());
+			updateSourceRow.setLong(4, row);
+			updateSourceRow.addBatch();
+			return true;
+		}
+
+		private boolean isUpdate(Long resolutionId) {
+			return WriteMode.UPDATE == writeMode && null != resolutionId;
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			SQLException error = null;
+			for (AutoCloseable closeable : new AutoCloseable[] { insertAuthority, insertWork,
+					updateWork, upsertWork, updateSourceRow, insertAuthor, deleteAuthors, updateInvalid, con }) {
+				try {
+					closeable.close();
+				} catch (Exception e) {
+					if (null == error)
+						error = new SQLException("Unable to close database session", e);
+					else
+						error.addSuppressed(e);
+				}
+			}
+
+			if (null != error)
+				throw new IOException(error);
+		}
+	}
+
+	/**
+	 * @param dataSource pooled DataSource with at least one connection per worker thread,
+	 * the DataSource is not closed with the sink
+	 * @param writeMode WriteMode
+	 * @param batchSize number of works written in one transaction
+	 */
+	public MySqlSink(DataSource dataSource, WriteMode writeMode, int batchSize) {
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+
+		this.dataSource = dataSource;
+		this.writeMode = writeMode;
+		this.batchSize = batchSize;
+	}
+
+	public WriteMode getWriteMode() {
+		return writeMode;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Write works with LOAD DATA LOCAL INFILE in bulk instead of JDBC batches.
+	 * @param maxWorks number of buffered works to load at, 0 to disable bulk load
+	 * @param maxDelay age in milliseconds of the oldest buffered work to load at, 0 to load by size only
+	 * @throws IOException
+	 */
+	public synchronized void setBulkLoad(int maxWorks, long maxDelay) throws IOException {
+		closeBulkWriter();
+
+		if (maxWorks > 0) {
+			try {
+				bulkConnection = dataSource.getConnection();
+			} catch (SQLException e) {
+				throw new IOException("Unable to open database connection", e);
+			}
+			bulkWriter = new LoadDataWriter(bulkConnection, writeMode, maxWorks, maxDelay, null);
+		}
+	}
+
+	@Override
+	public void saveAuthority(String doi, String authority) throws IOException {
+		try {
+			getSession().addAuthority(doi, authority);
+		} catch (SQLException e) {
+			throw new IOException("Unable to write authority of DOI: " + doi, e);
+		}
+	}
+
+	/**
+	 * Update mode writes the work into every row. Upsert mode writes the work once on its DOI and marks 
+	 * every source row resolved, insert mode writes the work once.
+	 */
+	@Override
+	public void saveWorkForRows(long[] resolutionIds, String doi, WorkRecord work) throws IOException {
+		if (WriteMode.UPDATE == writeMode)
+			ResolutionSink.super.saveWorkForRows(resolutionIds, doi, work);
+		else if (WriteMode.UPSERT == writeMode)
+			saveWork(null, resolutionIds, doi, work);
+		else if (resolutionIds.length > 0)
+			saveWork(resolutionIds[0], doi, work);
+	}
+
+	@Override
+	public void saveInvalid(long resolutionId, String doi) throws IOException {
+		try {
+			getSession().addInvalid(resolutionId);
+		} catch (SQLException e) {
+			throw new IOException("Unable to mark invalid DOI: " + doi, e);
+		}
+	}
+
+	@Override
+	public void saveWork(Long resolutionId, String doi, WorkRecord work) throws IOException {
+		saveWork(resolutionId, null, doi, work);
+	}
+
+	/**
+	 * @param resolutionId id of the source row, updated in update mode and marked resolved in upsert mode, or null
+	 * @param rows ids of further source rows, marked resolved by upsert mode, or null
+	 */
+	private void saveWork(Long resolutionId, long[] rows, String doi, WorkRecord work) throws IOException {
+		if (null == work.getTitle())
+			return;
+
+		try {
+			LoadDataWriter bulkWriter = this.bulkWriter;
+			if (null != bulkWriter)
+				bulkWriter.add(resolutionId, rows, doi, work);
+			else
+				getSession().addWork(resolutionId, rows, doi, work);
+		} catch (SQLException e) {
+			throw new IOException("Unable to write work: " + doi, e);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		try {
+			for (Session session : openSessions)
+				session.flush();
+
+			LoadDataWriter bulkWriter = this.bulkWriter;
+			if (null != bulkWriter)
+				bulkWriter.flush();
+		} catch (SQLException e) {
+			throw new IOException("Unable to write buffered works", e);
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+			closeBulkWriter();
+		} finally {
+			// sessions of all worker threads are closed, the connections are returned to the pool
+			for (Session session : openSessions) {
+				try {
+					session.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			openSessions.clear();
+			sessions.remove();
+		}
+	}
+
+	/**
+	 * @return database session of the current thread, opened on first use
+	 * @throws SQLException
+	 */
+	private Session getSession() throws SQLException {
+		Session session = sessions.get();
+		if (null == session) {
+			Connection con = dataSource.getConnection();
+			try {
+				session = new Session(con);
+			} catch (SQLException e) {
+				con.close();
+				throw e;
+			}
+
+			sessions.set(session);
+			openSessions.add(session);
+		}
+
+		return session;
+	}
+
+	private void closeBulkWriter() throws IOException {
+		try {
+			if (null != bulkWriter)
+				bulkWriter.close();
+		} finally {
+			bulkWriter = null;
+			if (null != bulkConnection) {
+				try {
+					bulkConnection.close();
+				} catch (SQLException e) {
+					throw new IOException("Unable to close database connection", e);
+				} finally {
+					bulkConnection = null;
+				}
+			}
+		}
+	}
+
+	private static long getGeneratedKey(PreparedStatement statement, String doi) throws SQLException {
+		try (ResultSet rs = statement.getGeneratedKeys()) {
+			if (!rs.next())
+				throw new SQLException("Missing generated key for work: " + doi);
+
+			return rs.getLong(1);
+		}
+	}
+
+	private static void setWorkParameters(PreparedStatement statement, String doi, String url, String title, String year) throws SQLException {
+		statement.setString(1, doi);
+		statement.setString(2, url);
+		statement.setString(3, title);
+		statement.setString(4, year);
+	}
+}
@@ -0,0 +1,260 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.lang.StringUtils;
+import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.InternedStringDeserializer;
+import org.researchgraph.crossref.Item;
+import org.researchgraph.crossref.UnknownProperties;
+import org.researchgraph.crossref.WorkRecord;
+
+/**
+ * Class to resolve DOI's read as lines from a stream, without a database,
+ * and to write one JSON line per DOI into a {@link JsonLinesSink}.
+ *
+ * DOI's go through the same authority and CrossRef lanes as in {@link Resolver}, the work is parsed
+ * by the CrossRef task. Results are written in completion order, or in input order through a ring
+ * buffer. At most window DOI's are in flight, reading blocks while the window is full, so memory
+ * does not depend on the size of the input. Records are identified by the line number of the DOI.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class PipeResolver implements Closeable {
+	private final CrossRef crossref;
+	private final JsonLinesSink sink;
+	private final int window;
+	private final boolean ordered;
+
+	private final Semaphore inFlight;
+	private final Result[] ring;
+	private long next;
+
+	private final DoiNormalizer normalizer = new DoiNormalizer();
+	private final AgencyPools pools = new AgencyPools();
+	private PrefixHitRates hitRates = new PrefixHitRates(0);
+
+	private final LongAdder resolved = new LongAdder();
+	private final LongAdder unresolved = new LongAdder();
+
+	/**
+	 * Outcome of a single input line
+	 */
+	private static class Result {
+		private final long sequence;
+		private final long line;
+		private final String source;
+		private final String doi;
+		private String authority;
+		private WorkRecord work;
+
+		public Result(long sequence, long line, String source, String doi) {
+			this.sequence = sequence;
+			this.line = line;
+			this.source = source;
+			this.doi = doi;
+		}
+	}
+
+	/**
+	 * @param crossref CrossRef
+	 * @param sink JsonLinesSink to write results into, the sink is not closed with PipeResolver
+	 * @param threads number of threads of the authority and CrossRef lanes
+	 * @param window maximal number of DOI's in flight
+	 * @param ordered true to write results in input order, false in completion order
+	 */
+	public PipeResolver(CrossRef crossref, JsonLinesSink sink, int threads, int window, boolean ordered) {
+		if (window <= 0)
+			throw new IllegalArgumentException("Invalid window: " + window);
+
+		this.crossref = crossref;
+		this.sink = sink;
+		this.window = window;
+		this.ordered = ordered;
+		this.inFlight = new Semaphore(window);
+		this.ring = ordered ? new Result[window] : null;
+
+		pools.setThreads(CrossRef.AUTHORITY_CROSSREF, threads);
+		pools.setThreads(AgencyPools.LANE_AUTHORITY, threads);
+	}
+
+	/**
+	 * Resolve every non empty line of the reader and wait until all results have been written
+	 * @param reader BufferedReader with one DOI per line
+	 * @return number of DOI's read
+	 * @throws Exception
+	 */
+	public long resolve(BufferedReader reader) throws Exception {
+		long line = 0;
+		long dois = 0;
+		String source;
+		while (null != (source = reader.readLine())) {
+			++line;
+			if (StringUtils.isBlank(source))
+				continue;
+
+			inFlight.acquire();
+
+			// the ring is indexed by the sequence of DOI's, as blank lines are skipped
+			Result result = new Result(dois++, line, source, normalizer.accept(source));
+			if (null == result.doi)
+				complete(result);
+			else
+				dispatch(result);
+
+			if (dois % 10000 == 0)
+				System.out.println("Read " + dois + " doi's");
+		}
+
+		// all permits are back once every result has been written
+		inFlight.acquire(window);
+		inFlight.release(window);
+		pools.drain();
+		sink.flush();
+
+		System.out.println("Done. Processed " + dois + " DOI's, " + resolved.sum() + " resolved, "
+				+ unresolved.sum() + " unresolved, " + normalizer.getRejected() + " invalid");
+
+		normalizer.printSummary(System.out);
+		hitRates.printSummary(System.out);
+		pools.printSummary(System.out);
+		UnknownProperties.printSummary(System.out);
+		InternedStringDeserializer.printSummary(System.out);
+
+		return dois;
+	}
+
+	/**
+	 * Route DOI like {@link Resolver}, a failed task still completes its result, or ordered output would stall
+	 */
+	private void dispatch(Result result) throws InterruptedException {
+		String prefix = Resolver.getPrefix(result.doi);
+		if (hitRates.isWorksFirst(prefix)) {
+			pools.submit(CrossRef.AUTHORITY_CROSSREF, () -> {
+				try {
+					boolean found = requestWork(result);
+					hitRates.recordWorksFirst(found);
+					if (found) {
+						hitRates.record(prefix, true);
+						result.authority = CrossRef.AUTHORITY_CROSSREF;
+					} else
+						learnAuthority(prefix, result);
+				} catch (Exception e) {
+					e.printStackTrace();
+				} finally {
+					complete(result);
+				}
+			});
+		} else {
+			pools.submit(AgencyPools.LANE_AUTHORITY, () -> {
+				boolean routed = false;
+				try {
+					if (CrossRef.AUTHORITY_CROSSREF.equals(learnAuthority(prefix, result))) {
+						pools.submit(CrossRef.AUTHORITY_CROSSREF, () -> {
+							try {
+								requestWork(result);
+							} catch (Exception e) {
+								e.printStackTrace();
+							} finally {
+								complete(result);
+							}
+						});
+						routed = true;
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				} finally {
+					if (!routed)
+						complete(result);
+				}
+			});
+		}
+	}
+
+	private String learnAuthority(String prefix, Result result) {
+		result.authority = crossref.requestAuthority(result.doi);
+		if (!StringUtils.isEmpty(result.authority))
+			hitRates.record(prefix, CrossRef.AUTHORITY_CROSSREF.equals(result.authority));
+
+		return result.authority;
+	}
+
+	/**
+	 * Request CrossRef work into the result
+	 * @return true if the work has been found
+	 */
+	private boolean requestWork(Result result) {
+		WorkRecord record = new WorkRecord();
+		if (crossref.isProjectionEnabled()) {
+			if (!crossref.requestWork(result.doi, record))
+				return false;
+		} else {
+			Item work = crossref.requestWork(result.doi);
+			if (null == work)
+				return false;
+
+			record.set(work);
+		}
+
+		result.work = record;
+		return true;
+	}
+
+	/**
+	 * Write a result, or hold it in the ring until all results before it have been written
+	 */
+	private synchronized void complete(Result result) throws IOException {
+		if (!ordered) {
+			write(result);
+			return;
+		}
+
+		// fewer than window results are in flight, so their slots never collide
+		ring[(int) (result.sequence % window)] = result;
+
+		Result head;
+		while (null != (head = ring[(int) (next % window)])) {
+			ring[(int) (next % window)] = null;
+			++next;
+
+			write(head);
+		}
+	}
+
+	private void write(Result result) throws IOException {
+		try {
+			if (null == result.doi)
+				sink.saveInvalid(result.line, result.source);
+			else if (null != result.work && null != result.work.getTitle()) {
+				sink.saveWork(result.line, result.doi, result.work);
+				resolved.increment();
+			} else {
+				sink.saveUnresolved(result.line, result.doi, result.authority);
+				unresolved.increment();
+			}
+		} finally {
+			inFlight.release();
+		}
+	}
+
+	public PrefixHitRates getHitRates() {
+		return hitRates;
+	}
+
+	/**
+	 * @param threshold minimal share of CrossRef DOI's in a prefix to request works before the authority, 0 to disable
+	 */
+	public void setWorksFirstThreshold(double threshold) {
+		this.hitRates = new PrefixHitRates(threshold);
+	}
+
+	@Override
+	public void close() {
+		pools.close();
+	}
+}
@@ -0,0 +1,114 @@
+package org.researchgraph.resolver;
+
+import java.io.PrintStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Class to learn, which registrant prefixes belong to CrossRef.
+ * 
+ * Every DOI with a known authority is counted for its prefix. A prefix qualifies for 
+ * works first resolution, while it has fewer than MIN_SAMPLES DOI's or the share of CrossRef 
+ * DOI's is at least the threshold. Outcomes of works first requests are counted separately.
+ * Counters are safe to update from parallel workers.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class PrefixHitRates {
+	public static final int MIN_SAMPLES = 10;
+	
+	private final double threshold;
+	
+	private final ConcurrentMap<String, Counter> prefixes = new ConcurrentHashMap<String, Counter>();
+	
+	private final LongAdder worksFirstHits = new LongAdder();
+	private final LongAdder worksFirstMisses = new LongAdder();
+	
+	private static class Counter {
+		private final LongAdder crossref = new LongAdder();
+		private final LongAdder total = new LongAdder();
+	}
+	
+	/**
+	 * @param threshold minimal share of CrossRef DOI's in a prefix to try works first, 0 to never try
+	 */
+	public PrefixHitRates(double threshold) {
+		this.threshold = threshold;
+	}
+	
+	public double getThreshold() {
+		return threshold;
+	}
+	
+	public boolean isEnabled() {
+		return threshold > 0;
+	}
+	
+	/**
+	 * Count a DOI with known authority
+	 * @param prefix registrant prefix
+	 * @param crossref true if the DOI is registered with CrossRef
+	 */
+	public void record(String prefix, boolean crossref) {
+		Counter counter = prefixes.get(prefix);
+		if (null == counter)
+			counter = prefixes.computeIfAbsent(prefix, k -> new Counter());
+		
+		counter.total.increment();
+		if (crossref)
+			counter.crossref.increment();
+	}
+	
+	/**
+	 * Count outcome of a works first request
+	 * @param hit true if the work has been found
+	 */
+	public void recordWorksFirst(boolean hit) {
+		(hit ? worksFirstHits : worksFirstMisses).increment();
+	}
+	
+	/**
+	 * @param prefix registrant prefix
+	 * @return true if works should be requested before the authority
+	 */
+	public boolean isWorksFirst(String prefix) {
+		if (!isEnabled())
+			return false;
+		
+		Counter counter = prefixes.get(prefix);
+		if (null == counter)
+			return true;
+		
+		long total = counter.total.sum();
+		return total < MIN_SAMPLES || counter.crossref.sum() >= threshold * total;
+	}
+	
+	/**
+	 * @param prefix registrant prefix
+	 * @return share of CrossRef DOI's or NaN if the prefix has not been seen
+	 */
+	public double getRate(String prefix) {
+		Counter counter = prefixes.get(prefix);
+		if (null == counter)
+			return Double.NaN;
+		
+		return (double) counter.crossref.sum() / counter.total.sum();
+	}
+	
+	public void printSummary(PrintStream out) {
+		if (!isEnabled())
+			return;
+		
+		long hits = worksFirstHits.sum();
+		long misses = worksFirstMisses.sum();
+		long worksFirst = 0;
+		for (String prefix : prefixes.keySet()) 
+			if (isWorksFirst(prefix))
+				++worksFirst;
+		
+		out.println("Works first: " + hits + " hits (authority requests saved), " + misses + " misses, " 
+				+ worksFirst + " of " + prefixes.size() + " prefixes resolved works first");
+	}
+}
@@ -0,0 +1,136 @@
+package org.researchgraph.resolver;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Class to reorder a window of DOI groups into clusters of the same registrant prefix.
+ * 
+ * Consecutive DOI's of one prefix share the authority, the prefix statistics, cache key 
+ * prefixes and CrossRef rate limits. Clusters are dispatched round robin, in order of the 
+ * first appearance of every prefix, with at most maxCluster DOI's per turn: a prefix waits 
+ * at most (prefixes - 1) * maxCluster DOI's for its next turn and no window waits for 
+ * another, so no prefix starves.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class PrefixScheduler {
+	private final int maxCluster;
+	
+	private long windows;
+	private long dois;
+	private long clusters;
+	private long switchesBefore;
+	private long switchesAfter;
+	
+	/**
+	 * @param maxCluster maximal number of DOI's of one prefix dispatched in a row
+	 */
+	public PrefixScheduler(int maxCluster) {
+		if (maxCluster <= 0)
+			throw new IllegalArgumentException("Invalid cluster size: " + maxCluster);
+		
+		this.maxCluster = maxCluster;
+	}
+	
+	/**
+	 * Reorder a window of groups
+	 * @param window List of groups
+	 * @return groups in dispatch order
+	 */
+	public List<DuplicateCollapser.Group> schedule(List<DuplicateCollapser.Group> window) {
+		Map<String, ArrayDeque<DuplicateCollapser.Group>> prefixes = new LinkedHashMap<String, ArrayDeque<DuplicateCollapser.Group>>();
+		String last = null;
+		for (DuplicateCollapser.Group group : window) {
+			String prefix = Resolver.getPrefix(group.getDoi());
+			if (null != last && !last.equals(prefix))
+				++switchesBefore;
+			last = prefix;
+			
+			ArrayDeque<DuplicateCollapser.Group> queue = prefixes.get(prefix);
+			if (null == queue)
+				prefixes.put(prefix, queue = new ArrayDeque<DuplicateCollapser.Group>());
+			queue.add(group);
+		}
+		
+		List<DuplicateCollapser.Group> ordered = new ArrayList<DuplicateCollapser.Group>(window.size());
+		while (!prefixes.isEmpty()) {
+			for (Iterator<ArrayDeque<DuplicateCollapser.Group>> it = prefixes.values().iterator(); it.hasNext(); ) {
+				ArrayDeque<DuplicateCollapser.Group> queue = it.next();
+				for (int i = 0; i < maxCluster && !queue.isEmpty(); ++i) 
+					ordered.add(queue.poll());
+				
+				++clusters;
+				if (queue.isEmpty())
+					it.remove();
+			}
+		}
+		
+		last = null;
+		for (DuplicateCollapser.Group group : ordered) {
+			String prefix = Resolver.getPrefix(group.getDoi());
+			if (null != last && !last.equals(prefix))
+				++switchesAfter;
+			last = prefix;
+		}
+		
+		++windows;
+		dois += window.size();
+		
+		return ordered;
+	}
+	
+	/**
+	 * Reorder groups window by window, as they are consumed
+	 * @param source Iterator of groups
+	 * @param window number of groups reordered at once
+	 * @return Iterator of groups in dispatch order
+	 */
+	public Iterator<DuplicateCollapser.Group> schedule(final Iterator<DuplicateCollapser.Group> source, final int window) {
+		return new Iterator<DuplicateCollapser.Group>() {
+			private Iterator<DuplicateCollapser.Group> current = Collections.emptyIterator();
+			
+			@Override
+			public boolean hasNext() {
+				if (!current.hasNext() && source.hasNext()) {
+					List<DuplicateCollapser.Group> pending = new ArrayList<DuplicateCollapser.Group>(window);
+					while (pending.size() < window && source.hasNext())
+						pending.add(source.next());
+					
+					current = schedule(pending).iterator();
+				}
+				
+				return current.hasNext();
+			}
+
+			@Override
+			public DuplicateCollapser.Group next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				
+				return current.next();
+			}
+		};
+	}
+	
+	/**
+	 * @return average number of DOI's dispatched in a row for the same prefix
+	 */
+	public double getAverageCluster() {
+		return clusters > 0 ? (double) dois / clusters : 0;
+	}
+	
+	public void printSummary(PrintStream out) {
+		out.println("Prefix scheduling: " + dois + " DOI's in " + windows + " windows, " + clusters + " clusters, " 
+				+ String.format("%.1f", getAverageCluster()) + " DOI's per cluster, prefix switches reduced from " 
+				+ switchesBefore + " to " + switchesAfter);
+	}
+}
@@ -0,0 +1,106 @@
+package org.researchgraph.resolver;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Class to interleave two priority classes of DOI groups: fresh rows, added after the run
+ * has started, and the backfill of all rows known at the start.
+ *
+ * Groups are dispatched by weighted round robin: out of every (freshWeight + backfillWeight)
+ * groups, freshWeight are taken from the fresh queue and backfillWeight from the backfill,
+ * a class without pending groups gives its turns to the other one. Fresh groups therefore
+ * never wait behind the backfill, and the backfill keeps going while fresh rows arrive.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class PriorityScheduler {
+	private final int freshWeight;
+	private final int backfillWeight;
+
+	private final ArrayDeque<Pending> fresh = new ArrayDeque<Pending>();
+
+	private int turn;
+
+	private long freshDispatched;
+	private long backfillDispatched;
+	private long freshWait;
+	private long maxFreshWait;
+
+	/**
+	 * Fresh group with the time it has been queued
+	 */
+	private static class Pending {
+		private final DuplicateCollapser.Group group;
+		private final long queued = System.currentTimeMillis();
+
+		public Pending(DuplicateCollapser.Group group) {
+			this.group = group;
+		}
+	}
+
+	/**
+	 * @param freshWeight number of fresh groups dispatched per turn
+	 * @param backfillWeight number of backfill groups dispatched per turn
+	 */
+	public PriorityScheduler(int freshWeight, int backfillWeight) {
+		if (freshWeight <= 0)
+			throw new IllegalArgumentException("Invalid fresh weight: " + freshWeight);
+		if (backfillWeight <= 0)
+			throw new IllegalArgumentException("Invalid backfill weight: " + backfillWeight);
+
+		this.freshWeight = freshWeight;
+		this.backfillWeight = backfillWeight;
+	}
+
+	/**
+	 * Queue a fresh group
+	 * @param group Group
+	 */
+	public void addFresh(DuplicateCollapser.Group group) {
+		fresh.add(new Pending(group));
+	}
+
+	/**
+	 * @return number of queued fresh groups
+	 */
+	public int getFreshPending() {
+		return fresh.size();
+	}
+
+	/**
+	 * Select the next group to dispatch
+	 * @param backfill Iterator of backfill groups
+	 * @return next group or null if both classes are empty
+	 */
+	public DuplicateCollapser.Group next(Iterator<DuplicateCollapser.Group> backfill) {
+		boolean freshTurn = turn < freshWeight;
+		turn = (turn + 1) % (freshWeight + backfillWeight);
+
+		if ((freshTurn || !backfill.hasNext()) && !fresh.isEmpty()) {
+			Pending pending = fresh.poll();
+
+			long wait = System.currentTimeMillis() - pending.queued;
+			freshWait += wait;
+			maxFreshWait = Math.max(maxFreshWait, wait);
+			++freshDispatched;
+
+			return pending.group;
+		}
+
+		if (backfill.hasNext()) {
+			++backfillDispatched;
+			return backfill.next();
+		}
+
+		return null;
+	}
+
+	public void printSummary(PrintStream out) {
+		out.println("Priority scheduler: " + freshDispatched + " fresh DOI's, " + backfillDispatched + " backfill DOI's, weights "
+				+ freshWeight + ":" + backfillWeight + ", average fresh wait "
+				+ (freshDispatched > 0 ? freshWait / freshDispatched : 0) + " ms, maximal fresh wait " + maxFreshWait + " ms");
+	}
+}
@@ -0,0 +1,63 @@
+package org.researchgraph.resolver;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.researchgraph.crossref.WorkRecord;
+
+/**
+ * Destination of resolution results. 
+ * 
+ * Sinks may buffer writes and are expected to write them in batches. Everything written 
+ * before {@link #flush()} or {@link #close()} returns must be persisted. Sinks must be 
+ * safe to call from several worker threads.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public interface ResolutionSink extends Closeable {
+	/**
+	 * Write registration agency of a DOI
+	 * @param doi String containing DOI
+	 * @param authority registration agency name
+	 * @throws IOException
+	 */
+	void saveAuthority(String doi, String authority) throws IOException;
+	
+	/**
+	 * Write resolved work with its authors. Works without title are ignored. 
+	 * The record may be reused by the caller as soon as the method returns.
+	 * @param resolutionId id of the source doi_resolution row or null if there is none
+	 * @param doi String containing DOI
+	 * @param work WorkRecord
+	 * @throws IOException
+	 */
+	void saveWork(Long resolutionId, String doi, WorkRecord work) throws IOException;
+	
+	/**
+	 * Write resolved work for several source rows with the same DOI. 
+	 * By default the work is written for every row.
+	 * @param resolutionIds ids of the source doi_resolution rows
+	 * @param doi String containing DOI
+	 * @param work WorkRecord
+	 * @throws IOException
+	 */
+	default void saveWorkForRows(long[] resolutionIds, String doi, WorkRecord work) throws IOException {
+		for (long resolutionId : resolutionIds)
+			saveWork(resolutionId, doi, work);
+	}
+	
+	/**
+	 * Mark a source doi_resolution row, which does not contain a valid DOI, so it is not resolved again
+	 * @param resolutionId id of the source doi_resolution row
+	 * @param doi source DOI string
+	 * @throws IOException
+	 */
+	void saveInvalid(long resolutionId, String doi) throws IOException;
+	
+	/**
+	 * Write all buffered results
+	 * @throws IOException
+	 */
+	void flush() throws IOException;
+}
@@ -3,183 +3,700 @@ package org.researchgraph.resolver;
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.sql.DataSource;
 
 import org.apache.commons.lang.StringUtils;
-import org.researchgraph.crossref.Author;
 import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.InternedStringDeserializer;
 import org.researchgraph.crossref.Item;
-import org.researchgraph.graph.GraphUtils;
+import org.researchgraph.crossref.UnknownProperties;
+import org.researchgraph.crossref.WorkRecord;
 
 public class Resolver implements Closeable {
+	// number of DOI's which authorities are read from the database at once
+	private static final int LOOKUP_BATCH = 500;
+	private static final int DEFAULT_DEDUP_BUDGET = 1000000;
+	private static final int DEFAULT_MAX_CLUSTER = 50;
+	// maximal number of fresh rows polled at once
+	private static final int FRESH_BATCH = 10000;
+	private static final long DEFAULT_FRESH_POLL = 60000;
+	private static final long DEFAULT_SHUTDOWN_TIMEOUT = 60000;
+	// interval to check the shutdown deadline while lanes are drained
+	private static final long DRAIN_SLICE = 1000;
+	
 	private final CrossRef crossref;
 	
-	private final Connection con;
-	private final PreparedStatement selectAuthority;
-	private final PreparedStatement insertAuthority;
-	private final PreparedStatement insertWork;
-	private final PreparedStatement insertAuthor;
+	private final DataSource dataSource;
+	private final ResolutionSink sink;
 	
-	public Resolver(String cache, String host, int port, String user, String password, String database) throws SQLException {
-		this.crossref = new CrossRef(cache);
+	// every worker thread has its own connection with prepared statements
+	private final ThreadLocal<Session> sessions = new ThreadLocal<Session>();
+	private final Set<Session> openSessions = ConcurrentHashMap.newKeySet();
+	
+	private final Set<String> crossrefPrefixes = new HashSet<String>();
+	
+	private final DoiNormalizer normalizer = new DoiNormalizer();
+	private PrefixHitRates hitRates = new PrefixHitRates(0);
+	
+	private final ThreadLocal<WorkRecord> records = ThreadLocal.withInitial(WorkRecord::new);
+	
+	private long harvestThreshold = 0;
+	private int threads = 1;
+	private int scheduleWindow = 0;
+	private int maxCluster = DEFAULT_MAX_CLUSTER;
+	private AgencyPools pools;
+	private int dedupBudget = DEFAULT_DEDUP_BUDGET;
+	private int freshWeight = 0;
+	private int backfillWeight = 1;
+	private long freshPoll = DEFAULT_FRESH_POLL;
+	// rows up to the watermark have been dispatched by previous calls
+	private long lastId = 0;
+	private volatile boolean stopped;
+	private volatile long stopDeadline;
+	private long shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+	private long undispatched;
+	private long abandoned;
+	// duplicate rows collapsed by the current call of resolveDOI()
+	private long collapsed;
+	
+	/**
+	 * Connection with prepared statements, owned by a single worker thread
+	 */
+	private static class Session implements Closeable {
+		private final Connection con;
+		private final PreparedStatement selectAuthorities;
+		private final PreparedStatement selectFresh;
+		
+		public Session(Connection con) throws SQLException {
+			this.con = con;
+			this.selectAuthorities = con.prepareStatement("SELECT doi, autority FROM doi_autority WHERE doi IN (" 
+					+ StringUtils.repeat("?", ",", LOOKUP_BATCH) + ")");
+			this.selectFresh = con.prepareStatement("SELECT id, doi FROM doi_resolution WHERE id > ? AND resolved IS NULL AND invalid = 0 ORDER BY id LIMIT " 
+					+ FRESH_BATCH);
+		}
 		
-		this.con = DriverManager.getConnection("jdbc:mysql://" + host + ":" + port + "/" + database + "?user=" + user + "&password=" + password);
+		@Override
+		public void close() throws IOException {
+			try {
+				try {
+					selectAuthorities.close();
+					selectFresh.close();
+				} finally {
+					con.close();
+				}
+			} catch (SQLException e) {
+				throw new IOException("Unable to close database session", e);
+			}
+		}
+	}
+	
+	/**
+	 * @param cache CrossRef cache folder or S3 bucket
+	 * @param dataSource pooled DataSource to read DOI's and authorities from, 
+	 * the DataSource is not closed with Resolver
+	 * @param sink ResolutionSink to write results into, the sink is not closed with Resolver
+	 */
+	public Resolver(String cache, DataSource dataSource, ResolutionSink sink) {
+		this.crossref = new CrossRef(cache);
+		this.dataSource = dataSource;
+		this.sink = sink;
+	}
+	
+	/**
+	 * Number of connections held while resolving into MySQL. Every thread of the CrossRef and 
+	 * authority lanes holds a sink session, the enumerating thread holds a resolver and a sink 
+	 * session, and the bulk writer one more. Lanes of other agencies never write.
+	 * @param threads number of threads of the CrossRef and authority lanes
+	 * @return number of connections
+	 */
+	public static int getConnectionCount(int threads) {
+		return threads * 2 + 3;
+	}
+	
+	/**
+	 * @return database session of the current thread, opened on first use
+	 * @throws SQLException
+	 */
+	private Session getSession() throws SQLException {
+		Session session = sessions.get();
+		if (null == session) {
+			Connection con = dataSource.getConnection();
+			try {
+				session = new Session(con);
+			} catch (SQLException e) {
+				con.close();
+				throw e;
+			}
+			
+			sessions.set(session);
+			openSessions.add(session);
+		}
 		
-		this.selectAuthority = con.prepareStatement("SELECT autority FROM doi_autority WHERE doi LIKE ?");
-		this.insertAuthority = con.prepareStatement("INSERT INTO doi_autority SET doi=?, autority=?, created=NOW()");
-		this.insertWork = con.prepareStatement("INSERT INTO doi_resolution SET doi=?, url=?, title=?, year=?, resolved=NOW()", Statement.RETURN_GENERATED_KEYS);
-		this.insertAuthor = con.prepareStatement("INSERT INTO doi_author SET resolution_id=?, first_name=?, last_name=?, full_name=?, orcid=?");
+		return session;
+	}
+	
+	public CrossRef getCrossRef() {
+		return crossref;
 	}
 	
 	private static boolean isCrossbredAuthority(String authority) {
 		return CrossRef.AUTHORITY_CROSSREF.equals(authority);
 	}
 	
-	public void resolveDOI() throws Exception {
-		try (Statement s = con.createStatement()) {
-			enumerateDOI(s);
+	/**
+	 * Resolve all unresolved rows added after the last call. Worker pools, known prefixes 
+	 * and statistics are kept until Resolver is closed, so repeated calls run warm.
+	 * The watermark only moves once the sink has been flushed and no DOI has failed, 
+	 * otherwise the next call reads unresolved rows from the previous watermark again.
+	 * @return number of dispatched DOI's, each resolved once for all its duplicate rows
+	 * @throws Exception
+	 */
+	public int resolveDOI() throws Exception {
+		if (null == pools) {
+			pools = new AgencyPools();
+			pools.setThreads(CrossRef.AUTHORITY_CROSSREF, threads);
+			pools.setThreads(AgencyPools.LANE_AUTHORITY, threads);
+		}
+		
+		long watermark = lastId;
+		long failed = pools.getFailed();
+		boolean committed = false;
+		try (Statement s = getSession().con.createStatement()) {
+			if (harvestThreshold > 0)
+				harvestPrefixes(s);
+			
+			int dois = enumerateDOI(s);
+			
+			failed = pools.getFailed() - failed;
+			if (failed > 0) 
+				System.out.println(failed + " DOI's have failed, rows after watermark " + watermark + " will be read again");
+			else
+				committed = true;
+			
+			return dois;
+		} finally {
+			if (!committed)
+				lastId = watermark;
 		}
 	}
 	
-	private void enumerateDOI(Statement s) throws Exception {
-		int counter = 0;
-		try (ResultSet rs = s.executeQuery("select id, doi from doi_resolution where resolved is null")) {
+	/**
+	 * Stop dispatching DOI's, the current call of {@link #resolveDOI()} finishes dispatched DOI's 
+	 * within the shutdown timeout, abandons the rest, flushes the sink and returns.
+	 * Rows which have not been dispatched or have been abandoned stay unresolved.
+	 */
+	public void stop() {
+		stopDeadline = System.currentTimeMillis() + shutdownTimeout;
+		stopped = true;
+	}
+	
+	public boolean isStopped() {
+		return stopped;
+	}
+	
+	/**
+	 * Harvest works of every prefix with at least harvestThreshold unresolved DOI's into the works cache,
+	 * if paging through the whole prefix takes fewer requests than resolving its DOI's one by one.
+	 */
+	private void harvestPrefixes(Statement s) throws SQLException {
+		// prefixes are counted on canonical DOI's, stored values may be URL's or carry a doi: prefix
+		Map<String, long[]> counters = new HashMap<String, long[]>();
+		try (ResultSet rs = s.executeQuery("select doi from doi_resolution where id > " + lastId + " and resolved is null and invalid = 0")) {
 			while (rs.next()) {
-				long resolutionId = rs.getLong(1);
-				String doi = rs.getString(2);
-				
-				String authority = resolveAuthority(doi);
-				if (isCrossbredAuthority(authority)) {
-					resolveCrossRefDOI(resolutionId, doi);
+				String doi = DoiNormalizer.normalize(rs.getString(1));
+				if (null != doi)
+					counters.computeIfAbsent(getPrefix(doi), k -> new long[1])[0]++;
+			}
+		}
+		
+		List<Map.Entry<String, long[]>> sorted = new ArrayList<Map.Entry<String, long[]>>(counters.entrySet());
+		sorted.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+		
+		Map<String, Long> prefixes = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, long[]> entry : sorted)
+			if (entry.getValue()[0] >= harvestThreshold)
+				prefixes.put(entry.getKey(), entry.getValue()[0]);
+		
+		for (Map.Entry<String, Long> entry : prefixes.entrySet()) {
+			if (stopped)
+				break;
+			
+			String prefix = entry.getKey();
+			// prefixes are only checked once per Resolver
+			if (crossrefPrefixes.contains(prefix))
+				continue;
+			
+			List<String> filters = Collections.singletonList(CrossRef.filter(CrossRef.FILTER_PREFIX, prefix));
+			
+			long works = crossref.requestWorksCount(filters);
+			if (works <= 0) 
+				continue;
+			
+			// works from the prefix are known to be registered with CrossRef
+			crossrefPrefixes.add(prefix);
+			
+			long pages = (works + CrossRef.MAX_ROWS - 1) / CrossRef.MAX_ROWS;
+			if (pages >= entry.getValue()) {
+				System.out.println("Skipping prefix " + prefix + ": " + works + " works for " + entry.getValue() + " DOI's");
+				continue;
+			}
+			
+			System.out.println("Harvesting prefix " + prefix + ": " + works + " works for " + entry.getValue() + " DOI's");
+			// a large prefix may take longer than the shutdown timeout, so harvesting stops with the resolver
+			System.out.println("Harvested " + crossref.harvestWorks(filters, this::isStopped) + " works" 
+					+ (stopped ? ", harvest of prefix " + prefix + " stopped" : ""));
+		}
+	}
+	
+	private int enumerateDOI(Statement s) throws Exception {
+		int counter = 0;
+		collapsed = 0;
+		try (DuplicateCollapser collapser = new DuplicateCollapser(dedupBudget, null)) {
+			try (ResultSet rs = s.executeQuery("select id, doi from doi_resolution where id > " + lastId + " and resolved is null and invalid = 0")) {
+				while (rs.next()) {
+					long resolutionId = rs.getLong(1);
+					lastId = Math.max(lastId, resolutionId);
+					
+					// rows with the same DOI are resolved once
+					addRow(collapser, resolutionId, rs.getString(2));
+				}
+			}
+			
+			System.out.println("Resolving " + collapser.getRows() + " rows");
+			
+			Iterator<DuplicateCollapser.Group> backfill = collapser.groups();
+			
+			PrefixScheduler scheduler = null;
+			if (scheduleWindow > 0) {
+				scheduler = new PrefixScheduler(maxCluster);
+				backfill = scheduler.schedule(backfill, scheduleWindow);
+			}
+			
+			PriorityScheduler priority = null;
+			if (freshWeight > 0) 
+				priority = new PriorityScheduler(freshWeight, backfillWeight);
+			
+			long rows = collapser.getRows();
+			long nextPoll = System.currentTimeMillis() + freshPoll;
+			List<DuplicateCollapser.Group> window = new ArrayList<DuplicateCollapser.Group>(LOOKUP_BATCH);
+			while (!stopped) {
+				DuplicateCollapser.Group group;
+				if (null == priority) 
+					group = backfill.hasNext() ? backfill.next() : null;
+				else {
+					// rows added after the start are polled periodically, and once more when the backfill is done
+					if (System.currentTimeMillis() >= nextPoll || !backfill.hasNext() && 0 == priority.getFreshPending()) {
+						rows += pollFresh(priority);
+						nextPoll = System.currentTimeMillis() + freshPoll;
+					}
+					
+					group = priority.next(backfill);
 				}
 				
-				++counter;
+				if (null == group)
+					break;
 				
-				if (counter % 1000 == 0) {
-					System.out.println("Processed " + counter + " doi's");
-				}
+				window.add(group);
+				
+				if (window.size() >= LOOKUP_BATCH) 
+					counter = resolveDOI(window, counter);
 			}
+			
+			if (stopped) {
+				// intake is stopped, groups which have not been dispatched are only counted
+				undispatched += window.size();
+				for (; backfill.hasNext(); backfill.next()) 
+					++undispatched;
+				if (null != priority)
+					undispatched += priority.getFreshPending();
+			} else
+				counter = resolveDOI(window, counter);
+			
+			collapsed += collapser.getDuplicates();
+			
+			drainPools();
+			sink.flush();
+			
+			if (stopped)
+				System.out.println("Stopped: " + undispatched + " DOI's not dispatched, " + abandoned + " DOI's abandoned in flight");
+			
+			System.out.println("Done. Processed " + counter + " DOI's for " + rows + " rows, " 
+					+ collapsed + " duplicate rows collapsed");
+			
+			if (null != scheduler)
+				scheduler.printSummary(System.out);
+			if (null != priority)
+				priority.printSummary(System.out);
 		}
 		
-		System.out.println("Done. Processed " + counter + " DOI's");
+		normalizer.printSummary(System.out);
+		hitRates.printSummary(System.out);
+		pools.printSummary(System.out);
+		UnknownProperties.printSummary(System.out);
+		InternedStringDeserializer.printSummary(System.out);
+		
+		return counter;
 	}
 	
-	private String resolveAuthority(String doi) throws SQLException {
-		String autority = getAuthorityFromDatabase(doi);
-		if (StringUtils.isEmpty(autority)) {
-			autority = crossref.requestAuthority(doi);
-			if (!StringUtils.isEmpty(autority)) {
-				saveAutorityToDatabase(doi, autority);
+	/**
+	 * Wait until every dispatched DOI has been resolved. Once stopped, lanes which are not empty 
+	 * by the shutdown deadline are abandoned.
+	 */
+	private void drainPools() throws InterruptedException {
+		while (!pools.drain(DRAIN_SLICE)) {
+			if (stopped && System.currentTimeMillis() >= stopDeadline) {
+				abandoned += pools.abandon();
+				break;
 			}
-		} 
-		
-		return autority;
+		}
 	}
 	
-	private void resolveCrossRefDOI(long resolutionId, String doi) throws Exception {
-		Item work = crossref.requestWork(doi);
-		if (null != work) {
-			String title = resolveString(work.getTitle());
-			if (null != title) {
-				
-				con.setAutoCommit(false);
-				try {
-					
-					String key = GraphUtils.generateDoiUri(doi);
-					String year = work.getIssuedString();
+	/**
+	 * Normalize a DOI and add its row to a collapser, or mark the row as invalid
+	 */
+	private void addRow(DuplicateCollapser collapser, long resolutionId, String source) throws Exception {
+		// DOI's are normalized before any cache or network access
+		String doi = normalizer.accept(source);
+		if (null == doi) 
+			sink.saveInvalid(resolutionId, source);
+		else
+			collapser.add(resolutionId, doi);
+	}
 	
-					Long workId = saveWorkToDatabase(doi, key, title, year);
-					
-	                if (null != workId && null != work.getAuthor()) {
-	                    for (Author author : work.getAuthor()) {
-	                            String firstName = author.getGiven();
-	                            String lastName = author.getFamily();
-	                            String fullName = author.getFullName();
-	                            String orcid = author.getOrcid();
-	                            // String authorKey = doi + ":" + fullName;
-	
-	                            saveAuthorToDatabase(workId, firstName, lastName, 
-	                        			fullName, orcid); 
-	                    }
-	                }
-	               
-	                con.commit();
-				} catch (Exception e) {
-					con.rollback();
+	/**
+	 * Queue unresolved rows added after the watermark as fresh groups and move the watermark
+	 * @return number of polled rows
+	 */
+	private long pollFresh(PriorityScheduler priority) throws Exception {
+		PreparedStatement selectFresh = getSession().selectFresh;
+		selectFresh.setLong(1, lastId);
+		
+		try (DuplicateCollapser collapser = new DuplicateCollapser(FRESH_BATCH + 1, null)) {
+			try (ResultSet rs = selectFresh.executeQuery()) {
+				while (rs.next()) {
+					long resolutionId = rs.getLong(1);
+					lastId = Math.max(lastId, resolutionId);
 					
-					throw e;
-				} finally {
-					con.setAutoCommit(true);
+					addRow(collapser, resolutionId, rs.getString(2));
 				}
 			}
+			
+			for (Iterator<DuplicateCollapser.Group> groups = collapser.groups(); groups.hasNext(); )
+				priority.addFresh(groups.next());
+			
+			collapsed += collapser.getDuplicates();
+			return collapser.getRows();
 		}
 	}
 	
-	private String resolveString(List<String> list) {
-		return null != list && list.size() > 0 ? list.get(0) : null;
+	/**
+	 * Resolve a window of DOI's, their known authorities are read ahead in one query
+	 */
+	private int resolveDOI(List<DuplicateCollapser.Group> window, int counter) throws Exception {
+		List<String> dois = new ArrayList<String>(window.size());
+		for (DuplicateCollapser.Group group : window) 
+			dois.add(group.getDoi());
+		
+		Map<String, String> authorities = getAuthoritiesFromDatabase(dois);
+		for (DuplicateCollapser.Group group : window) {
+			resolveDOI(group.getIds(), group.getDoi(), authorities);
+			
+			++counter;
+			
+			if (counter % 1000 == 0) {
+				System.out.println("Processed " + counter + " doi's");
+			}
+		}
+		
+		window.clear();
+		
+		return counter;
 	}
 	
-	private String getAuthorityFromDatabase(String doi) throws SQLException {
-		selectAuthority.setString(1, doi);
-		try (ResultSet rs = selectAuthority.executeQuery()) {
-			if (rs.next()) {
-				return rs.getString(1);
-			}
+	/**
+	 * Route DOI into the lane of its registration agency, DOI's with unknown agency go through the authority lane
+	 */
+	private void resolveDOI(long[] resolutionIds, String doi, Map<String, String> authorities) throws Exception {
+		String prefix = getPrefix(doi);
+		if (crossrefPrefixes.contains(prefix)) {
+			route(CrossRef.AUTHORITY_CROSSREF, resolutionIds, doi);
+			return;
+		}
+		
+		String autority = authorities.get(doi);
+		if (!StringUtils.isEmpty(autority)) {
+			hitRates.record(prefix, isCrossbredAuthority(autority));
+			route(autority, resolutionIds, doi);
+			return;
 		}
 		
-		return null;
+		if (hitRates.isWorksFirst(prefix)) {
+			// optimistic path, a found work proves the authority and saves the authority request
+			pools.submit(CrossRef.AUTHORITY_CROSSREF, () -> {
+				boolean found = resolveCrossRefDOI(resolutionIds, doi);
+				hitRates.recordWorksFirst(found);
+				if (found) {
+					hitRates.record(prefix, true);
+					sink.saveAuthority(doi, CrossRef.AUTHORITY_CROSSREF);
+				} else 
+					// requested in place, the CrossRef lane must not submit into the authority lane
+					learnAuthority(prefix, doi);
+			});
+		} else {
+			pools.submit(AgencyPools.LANE_AUTHORITY, () -> {
+				String learned = learnAuthority(prefix, doi);
+				if (!StringUtils.isEmpty(learned))
+					route(learned, resolutionIds, doi);
+			});
+		}
 	}
 	
-	private boolean saveAutorityToDatabase(String doi, String autority) throws SQLException {
-		insertAuthority.setString(1, doi);
-		insertAuthority.setString(2, autority);
-		return insertAuthority.execute();
+	/**
+	 * Request and save authority of a DOI
+	 * @return authority or null if it can not be resolved
+	 */
+	private String learnAuthority(String prefix, String doi) throws IOException {
+		String autority = crossref.requestAuthority(doi);
+		if (!StringUtils.isEmpty(autority)) {
+			hitRates.record(prefix, isCrossbredAuthority(autority));
+			sink.saveAuthority(doi, autority);
+		}
+		
+		return autority;
 	}
 	
+	/**
+	 * Submit DOI into the lane of its agency. Only CrossRef works are resolved, 
+	 * DOI's of other agencies are only counted in their lanes.
+	 */
+	private void route(String authority, long[] resolutionIds, String doi) throws InterruptedException {
+		if (isCrossbredAuthority(authority))
+			pools.submit(authority, () -> resolveCrossRefDOI(resolutionIds, doi));
+		else
+			pools.submit(authority, () -> {});
+	}
 	
-	private Long saveWorkToDatabase(String doi, String url, String title, String year) throws Exception {
-		insertWork.setString(1, doi);
-		insertWork.setString(2, url);
-		insertWork.setString(3, title);
-		insertWork.setString(4, year);
-		if (insertWork.execute()) {
-			try (ResultSet rs = insertWork.getGeneratedKeys()) {
-	            if(rs.next())
-	            {
-	                return rs.getLong(1);
-	            }
+	/**
+	 * Request CrossRef work and write it for all rows
+	 * @return true if the work has been found
+	 */
+	private boolean resolveCrossRefDOI(long[] resolutionIds, String doi) throws Exception {
+		if (crossref.isProjectionEnabled()) {
+			// lean path, the record is filled in place and reused for every DOI
+			WorkRecord record = records.get();
+			if (crossref.requestWork(doi, record)) {
+				sink.saveWorkForRows(resolutionIds, doi, record);
+				return true;
+			}
+		} else {
+			Item work = crossref.requestWork(doi);
+			if (null != work) {
+				sink.saveWorkForRows(resolutionIds, doi, records.get().set(work));
+				return true;
 			}
 		}
 		
-		return null;
+		return false;
 	}
-
-	private boolean saveAuthorToDatabase(long resolutionId, String firstName, String lastName, 
-			String fullName, String orcid) throws SQLException {
-		insertAuthor.setLong(1, resolutionId);
-		insertAuthor.setString(2, firstName);
-		insertAuthor.setString(3, lastName);
-		insertAuthor.setString(4, fullName);
-		insertAuthor.setString(5, orcid);
-		return insertAuthor.execute();
+	
+	static String getPrefix(String doi) {
+		int pos = doi.indexOf('/');
+		return pos > 0 ? doi.substring(0, pos) : doi;
 	}
-
 	
-	@Override
-	public void close() throws IOException {
-		try {
-			insertWork.close();
+	/**
+	 * Read known authorities of DOI's by exact match, LOOKUP_BATCH DOI's per query
+	 * @param dois List of normalized DOI's
+	 * @return Map of normalized DOI to authority
+	 * @throws SQLException
+	 */
+	private Map<String, String> getAuthoritiesFromDatabase(List<String> dois) throws SQLException {
+		Map<String, String> authorities = new HashMap<String, String>();
+		PreparedStatement selectAuthorities = getSession().selectAuthorities;
+		for (int from = 0; from < dois.size(); from += LOOKUP_BATCH) {
+			int to = Math.min(dois.size(), from + LOOKUP_BATCH);
+			// the last batch is padded with its last DOI to reuse the same statement
+			for (int i = 0; i < LOOKUP_BATCH; ++i) 
+				selectAuthorities.setString(i + 1, dois.get(Math.min(from + i, to - 1)));
 			
-			con.close();
-		} catch (SQLException e) {
-			throw new IOException("Unable to close database connection", e);
+			try (ResultSet rs = selectAuthorities.executeQuery()) {
+				while (rs.next()) {
+					authorities.put(rs.getString(1).toLowerCase(Locale.ROOT), rs.getString(2));
+				}
+			}
 		}
+		
+		return authorities;
+	}
+	
+	/**
+	 * @return minimal number of unresolved DOI's with the same prefix to harvest the prefix in bulk, 0 if disabled 
+	 */
+	public long getHarvestThreshold() {
+		return harvestThreshold;
 	}
 
+	public void setHarvestThreshold(long harvestThreshold) {
+		this.harvestThreshold = harvestThreshold;
+	}
+	
+	/**
+	 * @return minimal share of CrossRef DOI's in a prefix to request works before the authority, 0 if disabled
+	 */
+	public double getWorksFirstThreshold() {
+		return hitRates.getThreshold();
+	}
+
+	/**
+	 * Request works of DOI's with unknown authority first, if their prefix is mostly registered with CrossRef. 
+	 * Must be called before resolution starts, learned rates are reset.
+	 * @param threshold minimal share of CrossRef DOI's in a prefix, 0 to disable
+	 */
+	public void setWorksFirstThreshold(double threshold) {
+		this.hitRates = new PrefixHitRates(threshold);
+	}
+	
+	/**
+	 * @return number of threads of the CrossRef and authority lanes
+	 */
+	public int getThreads() {
+		return threads;
+	}
 
-}
\ No newline at end of file
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	
+	/**
+	 * @return number of DOI's reordered into prefix clusters at once, 0 if prefix scheduling is disabled
+	 */
+	public int getScheduleWindow() {
+		return scheduleWindow;
+	}
+
+	public void setScheduleWindow(int scheduleWindow) {
+		this.scheduleWindow = scheduleWindow;
+	}
+
+	/**
+	 * @return maximal number of DOI's of one prefix dispatched in a row
+	 */
+	public int getMaxCluster() {
+		return maxCluster;
+	}
+
+	public void setMaxCluster(int maxCluster) {
+		this.maxCluster = maxCluster;
+	}
+	
+	/**
+	 * @return maximal number of rows grouped by DOI in memory, before groups are spilled to disk
+	 */
+	public int getDedupBudget() {
+		return dedupBudget;
+	}
+
+	public void setDedupBudget(int dedupBudget) {
+		this.dedupBudget = dedupBudget;
+	}
+	
+	/**
+	 * @return number of fresh DOI's dispatched per turn, 0 if priority scheduling is disabled
+	 */
+	public int getFreshWeight() {
+		return freshWeight;
+	}
+
+	public void setFreshWeight(int freshWeight) {
+		this.freshWeight = freshWeight;
+	}
+
+	/**
+	 * @return number of backfill DOI's dispatched per turn
+	 */
+	public int getBackfillWeight() {
+		return backfillWeight;
+	}
+
+	public void setBackfillWeight(int backfillWeight) {
+		this.backfillWeight = backfillWeight;
+	}
+
+	/**
+	 * @return interval in milliseconds between queries for fresh rows
+	 */
+	public long getFreshPoll() {
+		return freshPoll;
+	}
+
+	public void setFreshPoll(long freshPoll) {
+		this.freshPoll = freshPoll;
+	}
+	
+	/**
+	 * @return time in milliseconds to finish dispatched DOI's after {@link #stop()}
+	 */
+	public long getShutdownTimeout() {
+		return shutdownTimeout;
+	}
+
+	public void setShutdownTimeout(long shutdownTimeout) {
+		this.shutdownTimeout = shutdownTimeout;
+	}
+	
+	/**
+	 * @return id of the last row read, rows up to it have been dispatched or counted as not dispatched
+	 */
+	public long getWatermark() {
+		return lastId;
+	}
+	
+	/**
+	 * @return number of DOI's read but not dispatched, because Resolver has been stopped
+	 */
+	public long getUndispatched() {
+		return undispatched;
+	}
+	
+	/**
+	 * @return number of dispatched DOI's which have not finished by the shutdown deadline
+	 */
+	public long getAbandoned() {
+		return abandoned;
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		// sessions of all worker threads are closed, the connections are returned to the pool
+		for (Session session : openSessions) {
+			try {
+				session.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		openSessions.clear();
+		sessions.remove();
+		
+		if (null != pools) {
+			pools.close();
+			pools = null;
+		}
+	}
+}
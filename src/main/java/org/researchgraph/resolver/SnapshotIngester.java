@@ -0,0 +1,181 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.InternedStringDeserializer;
+import org.researchgraph.crossref.Item;
+import org.researchgraph.crossref.WorkRecord;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Class to ingest CrossRef public data files without using the API.
+ * 
+ * The source folder is searched for *.json and *.json.gz files, each containing 
+ * an object with items array or an array of works. Archives must be extracted first. 
+ * Files are processed in parallel, one file per thread, and every work is written 
+ * into the works cache and / or into the resolution sink.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class SnapshotIngester {
+	private static final String EXT_JSON = ".json";
+	private static final String EXT_GZ = ".gz";
+	
+	private static final String FIELD_ITEMS = "items";
+	private static final String FIELD_DOI = "DOI";
+	
+	private static final ObjectMapper mapper = new ObjectMapper(); 
+	
+	private final CrossRef crossref;
+	private final ResolutionSink sink;
+	private final int threads;
+	
+	private final ThreadLocal<WorkRecord> records = ThreadLocal.withInitial(WorkRecord::new);
+	
+	private final AtomicLong works = new AtomicLong();
+	private final AtomicLong files = new AtomicLong();
+	
+	/**
+	 * @param crossref CrossRef to write works into the cache or null if cache should not be filled
+	 * @param sink ResolutionSink to write works into or null if works should not be resolved 
+	 * @param threads number of parallel files
+	 */
+	public SnapshotIngester(CrossRef crossref, ResolutionSink sink, int threads) {
+		if (null == crossref && null == sink)
+			throw new IllegalArgumentException("Either cache or sink must be set");
+		
+		this.crossref = crossref;
+		this.sink = sink;
+		this.threads = threads;
+	}
+	
+	public long ingest(Path source) throws Exception {
+		List<Path> paths;
+		try (Stream<Path> stream = Files.walk(source)) {
+			paths = stream.filter(Files::isRegularFile)
+					.filter(p -> p.toString().endsWith(EXT_JSON) || p.toString().endsWith(EXT_JSON + EXT_GZ))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+		
+		System.out.println("Ingesting " + paths.size() + " files with " + threads + " threads");
+		
+		long started = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>();
+			for (Path path : paths) 
+				futures.add(executor.submit(() -> ingestFile(path)));
+			
+			for (Future<Long> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		long elapsed = Math.max(1, System.currentTimeMillis() - started);
+		System.out.println("Done. Ingested " + works.get() + " works from " + files.get() + " files in " 
+				+ elapsed / 1000 + " s (" + works.get() * 1000 / elapsed + " works/s)");
+		if (null != sink) {
+			sink.flush();
+			InternedStringDeserializer.printSummary(System.out);
+		}
+		
+		return works.get();
+	}
+	
+	private long ingestFile(Path path) throws Exception {
+		long counter = 0;
+		try (InputStream is = open(path);
+			 JsonParser p = mapper.getFactory().createParser(is)) {
+			if (openItems(p)) {
+				for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+					if (token == JsonToken.START_OBJECT) {
+						ingestWork(p);
+						++counter;
+					} else
+						p.skipChildren();
+				}
+			} else
+				System.err.println("No works found in: " + path);
+		}
+		
+		works.addAndGet(counter);
+		long total = files.incrementAndGet();
+		if (total % 100 == 0) 
+			System.out.println("Processed " + total + " files, " + works.get() + " works");
+		
+		return counter;
+	}
+	
+	private void ingestWork(JsonParser p) throws Exception {
+		Item work;
+		String doi;
+		if (null != crossref) {
+			JsonNode node = mapper.readTree(p);
+			// works are cached and written under the canonical DOI, as the resolver requests and writes them
+			doi = DoiNormalizer.normalize(node.path(FIELD_DOI).asText(null));
+			if (null != doi)
+				crossref.saveWork(doi, node);
+			work = null == sink ? null : mapper.treeToValue(node, Item.class);
+		} else {
+			work = mapper.readValue(p, Item.class);
+			doi = DoiNormalizer.normalize(work.getDoi());
+		}
+		
+		if (null != work && null != doi)
+			sink.saveWork(null, doi, records.get().set(work));
+	}
+	
+	private static InputStream open(Path path) throws IOException {
+		InputStream is = new BufferedInputStream(Files.newInputStream(path));
+		return path.toString().endsWith(EXT_GZ) ? new GZIPInputStream(is) : is;
+	}
+	
+	/**
+	 * Position the parser inside the works array
+	 */
+	private static boolean openItems(JsonParser p) throws IOException {
+		JsonToken token = p.nextToken();
+		if (token == JsonToken.START_ARRAY)
+			return true;
+		
+		if (token == JsonToken.START_OBJECT) {
+			while (p.nextToken() == JsonToken.FIELD_NAME) {
+				String field = p.getCurrentName();
+				token = p.nextToken();
+				if (FIELD_ITEMS.equals(field) && token == JsonToken.START_ARRAY)
+					return true;
+				
+				p.skipChildren();
+			}
+		}
+		
+		return false;
+	}
+}
@@ -0,0 +1,127 @@
+package org.researchgraph.resolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.researchgraph.crossref.WorkRecord;
+import org.researchgraph.graph.GraphUtils;
+
+/**
+ * Offline resolution sink writing the resolution tables into local files in MySQL load format.
+ * 
+ * The folder receives doi_autority.tsv, doi_resolution.tsv and doi_author.tsv with the columns 
+ * of the corresponding tables, so the files can be loaded later with LOAD DATA INFILE, 
+ * and doi_invalid.tsv with id and DOI of source rows without valid DOI. 
+ * Works without source row get negative local ids, counted from -1, to link their authors 
+ * without colliding with ids of source rows. 
+ * Rows are written through buffered writers, which are flushed every batchSize works.
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class TsvSink implements ResolutionSink {
+	public static final String FILE_AUTHORITY = "doi_autority.tsv";
+	public static final String FILE_RESOLUTION = "doi_resolution.tsv";
+	public static final String FILE_AUTHOR = "doi_author.tsv";
+	public static final String FILE_INVALID = "doi_invalid.tsv";
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+	
+	private final Writer authorities;
+	private final Writer works;
+	private final Writer authors;
+	private final Writer invalids;
+	private final int batchSize;
+	
+	private long lastId;
+	private int buffered;
+	
+	/**
+	 * @param folder output folder, created if does not exist, existing files are replaced
+	 * @param batchSize number of works between flushes of the files
+	 * @throws IOException
+	 */
+	public TsvSink(Path folder, int batchSize) throws IOException {
+		Files.createDirectories(folder);
+		
+		this.authorities = open(folder.resolve(FILE_AUTHORITY));
+		this.works = open(folder.resolve(FILE_RESOLUTION));
+		this.authors = open(folder.resolve(FILE_AUTHOR));
+		this.invalids = open(folder.resolve(FILE_INVALID));
+		this.batchSize = batchSize;
+	}
+	
+	@Override
+	public synchronized void saveAuthority(String doi, String authority) throws IOException {
+		LoadDataFormat.writeRow(authorities, doi, authority, now());
+	}
+
+	@Override
+	public synchronized void saveInvalid(long resolutionId, String doi) throws IOException {
+		LoadDataFormat.writeRow(invalids, resolutionId, doi);
+	}
+
+	@Override
+	public synchronized void saveWork(Long resolutionId, String doi, WorkRecord work) throws IOException {
+		if (null == work.getTitle())
+			return;
+		
+		long id = null != resolutionId ? resolutionId : --lastId;
+		LoadDataFormat.writeRow(works, id, doi, GraphUtils.generateDoiUri(doi), work.getTitle(), work.getIssuedString(), now());
+		
+		for (int i = 0; i < work.getAuthorCount(); ++i) {
+			WorkRecord.AuthorRecord author = work.getAuthor(i);
+			LoadDataFormat.writeRow(authors, id, author.getGiven(), author.getFamily(), author.getFullName(), author.getOrcid());
+		}
+		
+		if (++buffered >= batchSize)
+			flush();
+	}
+
+	@Override
+	public synchronized void flush() throws IOException {
+		buffered = 0;
+		
+		authorities.flush();
+		works.flush();
+		authors.flush();
+		invalids.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			close(authorities);
+			close(works);
+			close(authors);
+			close(invalids);
+		}
+	}
+	
+	private static String now() {
+		return df.format(LocalDateTime.now());
+	}
+	
+	private static Writer open(Path path) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+	
+	private static void close(Writer writer) {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
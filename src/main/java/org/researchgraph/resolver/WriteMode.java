@@ -0,0 +1,33 @@
+package org.researchgraph.resolver;
+
+/**
+ * How resolved works are written into doi_resolution
+ * 
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public enum WriteMode {
+	/**
+	 * Insert a new row for every resolved work, the source row stays unresolved
+	 */
+	INSERT,
+	
+	/**
+	 * Update the source row in place. Works without a source row, 
+	 * for example ingested or reindexed ones, are upserted
+	 */
+	UPDATE,
+	
+	/**
+	 * Insert or update the row with the same DOI, requires unique index on doi_resolution.doi
+	 */
+	UPSERT;
+	
+	public static WriteMode fromString(String mode) {
+		for (WriteMode writeMode : values()) 
+			if (writeMode.name().equalsIgnoreCase(mode))
+				return writeMode;
+		
+		throw new IllegalArgumentException("Invalid write mode: " + mode);
+	}
+}
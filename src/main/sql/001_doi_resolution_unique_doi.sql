@@ -0,0 +1,39 @@
+-- Unique DOI key on doi_resolution, required by the upsert write mode.
+--
+-- Earlier runs inserted a new row for every resolved DOI and left the source row unresolved. 
+-- Before the index can be created, duplicates are collapsed into the oldest row of each DOI: 
+-- it receives the latest resolution and its authors, all other rows are deleted.
+
+CREATE TEMPORARY TABLE doi_resolution_keep AS
+	SELECT doi, MIN(id) AS keep_id, MAX(IF(resolved IS NULL, NULL, id)) AS resolved_id
+	FROM doi_resolution
+	GROUP BY doi
+	HAVING COUNT(*) > 1;
+
+UPDATE doi_resolution o
+	JOIN doi_resolution_keep k ON o.id = k.keep_id
+	JOIN doi_resolution r ON r.id = k.resolved_id
+SET o.url = r.url, o.title = r.title, o.year = r.year, o.resolved = r.resolved
+WHERE r.id <> o.id;
+
+DELETE a FROM doi_author a
+	JOIN doi_resolution_keep k ON a.resolution_id = k.keep_id
+WHERE k.resolved_id <> k.keep_id;
+
+UPDATE doi_author a
+	JOIN doi_resolution_keep k ON a.resolution_id = k.resolved_id
+SET a.resolution_id = k.keep_id
+WHERE k.resolved_id <> k.keep_id;
+
+DELETE a FROM doi_author a
+	JOIN doi_resolution d ON a.resolution_id = d.id
+	JOIN doi_resolution_keep k ON d.doi = k.doi
+WHERE d.id <> k.keep_id;
+
+DELETE d FROM doi_resolution d
+	JOIN doi_resolution_keep k ON d.doi = k.doi
+WHERE d.id <> k.keep_id;
+
+DROP TEMPORARY TABLE doi_resolution_keep;
+
+ALTER TABLE doi_resolution ADD UNIQUE INDEX doi_resolution_doi (doi);
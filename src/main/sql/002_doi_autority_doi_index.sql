@@ -0,0 +1,12 @@
+-- Index for exact DOI lookups on doi_autority.
+--
+-- Authorities are looked up by equality on the normalized DOI (trimmed, lower case), 
+-- many DOI's per query. Existing rows are normalized first, so equality also matches 
+-- with a case sensitive collation. The index uses a prefix, which fits both utf8 and 
+-- utf8mb4 key length limits and is still selective for DOI's.
+
+UPDATE doi_autority 
+SET doi = LOWER(TRIM(doi))
+WHERE BINARY doi <> BINARY LOWER(TRIM(doi));
+
+ALTER TABLE doi_autority ADD INDEX doi_autority_doi (doi(191));
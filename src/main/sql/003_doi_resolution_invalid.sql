@@ -0,0 +1,5 @@
+-- Flag for doi_resolution rows, which do not contain a valid DOI.
+--
+-- Such rows are marked by the resolver and are never selected for resolution again.
+
+ALTER TABLE doi_resolution ADD COLUMN invalid TINYINT(1) NOT NULL DEFAULT 0;
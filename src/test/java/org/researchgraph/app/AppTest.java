@@ -0,0 +1,115 @@
+package org.researchgraph.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.configuration.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.researchgraph.configuration.Properties;
+import org.researchgraph.crossref.WorkRecord;
+import org.researchgraph.resolver.ResolutionSink;
+import org.researchgraph.resolver.WriteMode;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class AppTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private PrintStream out;
+	private PrintStream err;
+	private ByteArrayOutputStream stdout;
+	private ByteArrayOutputStream stderr;
+
+	@Before
+	public void setUp() {
+		out = System.out;
+		err = System.err;
+
+		stdout = new ByteArrayOutputStream();
+		stderr = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(stdout, true));
+		System.setErr(new PrintStream(stderr, true));
+	}
+
+	@After
+	public void tearDown() {
+		System.setOut(out);
+		System.setErr(err);
+	}
+
+	private static WorkRecord work(String doi) {
+		WorkRecord work = new WorkRecord();
+		work.setDoi(doi);
+		work.setTitle("Title");
+		work.addAuthor().set("Jane", "Doe", null, null);
+		return work;
+	}
+
+	private void assertJsonLines(int expected) throws Exception {
+		String[] lines = new String(stdout.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertEquals(expected, lines.length);
+		for (String line : lines) {
+			JsonNode node = mapper.readTree(line);
+			assertTrue(line, node.isObject());
+		}
+	}
+
+	private void assertSinkOutputIsJson(String mode) throws Exception {
+		Configuration properties = Properties.fromArgs(new String[] { "-m", mode, "-k", "json", "-O", "-" });
+		App.redirectStdout(properties);
+
+		try (ResolutionSink sink = App.createSink(properties, null)) {
+			// messages printed by CrossRef and the resolver while the sink is writing
+			System.out.println("Downloading: https://api.crossref.org/works/10.1000/abc");
+			sink.saveAuthority("10.1000/abc", "CrossRef");
+			System.out.println("Processed 1000 doi's");
+			sink.saveWork(1L, "10.1000/abc", work("10.1000/abc"));
+			sink.saveInvalid(2, "not a doi");
+			System.out.println("Done");
+		}
+
+		assertJsonLines(3);
+		assertTrue(stderr.toString().contains("Downloading: "));
+		assertTrue(stderr.toString().contains("Done"));
+	}
+
+	@Test
+	public void resolveWritesOnlyJsonLinesToStdout() throws Exception {
+		assertSinkOutputIsJson(Properties.MODE_RESOLVE);
+	}
+
+	@Test
+	public void reindexWritesOnlyJsonLinesToStdout() throws Exception {
+		assertSinkOutputIsJson(Properties.MODE_REINDEX);
+	}
+
+	@Test
+	public void messagesStayOnStdoutWithoutStdoutSink() throws Exception {
+		Configuration properties = Properties.fromArgs(new String[] { "-m", Properties.MODE_RESOLVE, "-k", "tsv", "-O", "output" });
+		App.redirectStdout(properties);
+
+		System.out.println("Done");
+		assertEquals("Done", stdout.toString().trim());
+		assertEquals("", stderr.toString());
+	}
+
+	@Test
+	public void ingestAndReindexUpsertByDefault() throws Exception {
+		assertEquals(WriteMode.UPSERT, App.getWriteMode(Properties.fromArgs(new String[] { "-m", Properties.MODE_INGEST })));
+		assertEquals(WriteMode.UPSERT, App.getWriteMode(Properties.fromArgs(new String[] { "-m", Properties.MODE_REINDEX })));
+		assertEquals(WriteMode.UPDATE, App.getWriteMode(Properties.fromArgs(new String[] { "-m", Properties.MODE_INGEST, "-W", "update" })));
+		assertEquals(WriteMode.INSERT, App.getWriteMode(Properties.fromArgs(new String[] { "-m", Properties.MODE_RESOLVE })));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void ingestRefusesInsert() throws Exception {
+		App.getWriteMode(Properties.fromArgs(new String[] { "-m", Properties.MODE_INGEST, "-W", "insert" }));
+	}
+}
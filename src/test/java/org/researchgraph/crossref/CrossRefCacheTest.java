@@ -0,0 +1,84 @@
+package org.researchgraph.crossref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class CrossRefCacheTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private static final String DOI = "10.1000/abc";
+	private static final int THREADS = 8;
+	private static final int WRITES = 50;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static ObjectNode work(char c) {
+		ObjectNode work = mapper.createObjectNode();
+		work.put("DOI", DOI);
+		// large enough to be written in several chunks
+		work.putArray("title").add(StringUtils.repeat(String.valueOf(c), 1 << 16));
+		return work;
+	}
+
+	@Test
+	public void concurrentWritesOfSameWork() throws Exception {
+		File cache = folder.getRoot();
+		CrossRef crossref = new CrossRef(cache.getPath());
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int t = 0; t < THREADS; ++t) {
+				ObjectNode work = work((char) ('a' + t));
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < WRITES; ++i)
+						crossref.saveWork(work);
+					return null;
+				}));
+			}
+
+			for (Future<?> result : results)
+				result.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		List<Path> files;
+		try (Stream<Path> walk = Files.walk(cache.toPath())) {
+			files = new ArrayList<Path>();
+			walk.filter(Files::isRegularFile).forEach(files::add);
+		}
+
+		// no temporary file is left behind and the cached work is one complete write
+		assertEquals(files.toString(), 1, files.size());
+		assertTrue(files.get(0).toString().endsWith(".json"));
+
+		JsonNode response = mapper.readTree(files.get(0).toFile());
+		String title = response.get("message").get("title").get(0).asText();
+		assertEquals(1 << 16, title.length());
+		assertEquals(StringUtils.repeat(title.substring(0, 1), 1 << 16), title);
+
+		Item item = crossref.requestCachedWork(DOI);
+		assertEquals(DOI, item.getDoi());
+	}
+}
@@ -0,0 +1,170 @@
+package org.researchgraph.crossref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+public class CrossRefDateDeserializerTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	// date-parts edge cases, which must be formatted as by the previous deserializer
+	private static final String[] DATE_PARTS = {
+		"[[2015]]",
+		"[[2015,6]]",
+		"[[2015,6,15]]",
+		"[[2015,13,1]]",
+		"[[2015,0,1]]",
+		"[[2015,2,30]]",
+		"[[2016,2,29]]",
+		"[[2015,12,32]]",
+		"[[2015,1,0]]",
+		"[[2015,-1,1]]",
+		"[[1500,3,1]]",
+		"[[1000]]",
+		"[[1,1,1]]",
+		"[[2015,6,15],[2016,1,1]]",
+		"[[],[2014,2,3]]",
+		"[[2015,6,15,10]]",
+		"[[]]",
+		"[]"
+	};
+
+	public static class Holder {
+		@JsonDeserialize(using = CrossRefDateDeserializer.class)
+		public Date date;
+	}
+
+	public static class LegacyHolder {
+		@JsonDeserialize(using = LegacyDateDeserializer.class)
+		public Date date;
+	}
+
+	private static Date parse(String date) throws Exception {
+		return mapper.readValue("{\"date\":" + date + "}", Holder.class).date;
+	}
+
+	private static Date parseLegacy(String date) throws Exception {
+		return mapper.readValue("{\"date\":" + date + "}", LegacyHolder.class).date;
+	}
+
+	/**
+	 * @return date formatted by Item, as it is written into doi_resolution
+	 */
+	private static String format(Date date) {
+		Item item = new Item();
+		item.setIssued(date);
+		return item.getIssuedString();
+	}
+
+	/**
+	 * @return date formatted as by Item before dates were formatted with java.time
+	 */
+	private static String formatLegacy(Date date) {
+		return null == date ? null : new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date);
+	}
+
+	@Test
+	public void timestampHasPriority() throws Exception {
+		assertEquals(1488369600000L, parse("{\"date-parts\":[[2015,6,15]],\"date-time\":\"2016-01-02T03:04:05Z\",\"timestamp\":1488369600000}").getTime());
+		assertEquals(1488369600000L, parse("{\"timestamp\":1488369600000,\"date-time\":\"2016-01-02T03:04:05Z\",\"date-parts\":[[2015,6,15]]}").getTime());
+	}
+
+	@Test
+	public void dateTimeHasPriorityOverDateParts() throws Exception {
+		Date expected = parseLegacy("{\"date-time\":\"2016-01-02T03:04:05Z\"}");
+		assertEquals(expected, parse("{\"date-parts\":[[2015,6,15]],\"date-time\":\"2016-01-02T03:04:05Z\"}"));
+		assertEquals(expected, parse("{\"date-time\":\"2016-01-02T03:04:05Z\",\"date-parts\":[[2015,6,15]]}"));
+		assertEquals(1451703845000L, expected.getTime());
+	}
+
+	@Test
+	public void invalidDateTimeFallsBackToDateParts() throws Exception {
+		assertEquals("2015-06-15 00:00:00", format(parse("{\"date-time\":\"yesterday\",\"date-parts\":[[2015,6,15]]}")));
+	}
+
+	@Test
+	public void datePartsMatchLegacy() throws Exception {
+		for (String parts : DATE_PARTS) {
+			String json = "{\"date-parts\":" + parts + "}";
+			assertEquals(parts, formatLegacy(parseLegacy(json)), format(parse(json)));
+		}
+	}
+
+	@Test
+	public void monthAndDayRollOver() throws Exception {
+		assertEquals("2016-01-01 00:00:00", format(parse("{\"date-parts\":[[2015,13,1]]}")));
+		assertEquals("2014-12-01 00:00:00", format(parse("{\"date-parts\":[[2015,0,1]]}")));
+		assertEquals("2015-03-02 00:00:00", format(parse("{\"date-parts\":[[2015,2,30]]}")));
+		assertEquals("2016-01-01 00:00:00", format(parse("{\"date-parts\":[[2015,12,32]]}")));
+		assertEquals("2014-12-31 00:00:00", format(parse("{\"date-parts\":[[2015,1,0]]}")));
+	}
+
+	@Test
+	public void datesBeforeGregorianReform() throws Exception {
+		// Date values differ, the old calendar was Julian before 1582, but formatted dates are the same
+		assertEquals("1500-03-01 00:00:00", format(parse("{\"date-parts\":[[1500,3,1]]}")));
+		assertEquals(formatLegacy(parseLegacy("{\"date-parts\":[[1500,3,1]]}")), format(parse("{\"date-parts\":[[1500,3,1]]}")));
+		assertEquals("1582-10-15 00:00:00", format(parse("{\"date-parts\":[[1582,10,15]]}")));
+	}
+
+	@Test
+	public void datePartsAreProlepticGregorian() throws Exception {
+		// unlike the old hybrid calendar, which had Julian leap days and skipped 1582-10-05 to 1582-10-14
+		assertEquals("1500-03-01 00:00:00", format(parse("{\"date-parts\":[[1500,2,29]]}")));
+		assertEquals("1500-02-29 00:00:00", formatLegacy(parseLegacy("{\"date-parts\":[[1500,2,29]]}")));
+		assertEquals("1582-10-10 00:00:00", format(parse("{\"date-parts\":[[1582,10,10]]}")));
+		assertEquals("1582-10-20 00:00:00", formatLegacy(parseLegacy("{\"date-parts\":[[1582,10,10]]}")));
+	}
+
+	@Test
+	public void missingOrEmptyDate() throws Exception {
+		assertNull(parse("{}"));
+		assertNull(parse("{\"date-parts\":[[]]}"));
+		assertNull(parse("{\"date-parts\":[]}"));
+		assertEquals("2015-06-15 00:00:00", format(parse("{\"unknown\":{\"a\":[1,2]},\"date-parts\":[[2015,6,15]]}")));
+		assertNull(parse("null"));
+	}
+
+	@Test
+	public void concurrentParsing() throws Exception {
+		List<String> inputs = new ArrayList<String>();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 1000; ++i) {
+			String json = "{\"date-time\":\"20" + (10 + i % 10) + "-0" + (1 + i % 9) + "-1" + (i % 10) + "T0" + (i % 10) + ":00:00Z\","
+					+ "\"date-parts\":[[" + (1990 + i % 30) + "," + (1 + i % 12) + "," + (1 + i % 28) + "]]}";
+			inputs.add(i % 2 == 0 ? json : "{\"date-parts\":[[" + (1990 + i % 30) + "," + (1 + i % 12) + "," + (1 + i % 28) + "]]}");
+			expected.add(format(parse(inputs.get(i))));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; ++t) {
+				results.add(executor.submit(() -> {
+					for (int round = 0; round < 20; ++round)
+						for (int i = 0; i < inputs.size(); ++i)
+							if (!expected.get(i).equals(format(parse(inputs.get(i)))))
+								return false;
+					return true;
+				}));
+			}
+
+			for (Future<Boolean> result : results)
+				assertEquals(true, result.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package org.researchgraph.crossref;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Benchmark of {@link CrossRefDateDeserializer} against {@link LegacyDateDeserializer}.
+ *
+ * Parses documents with two dates each, indexed with all three forms and issued with date-parts only,
+ * and reports time and bytes allocated per document. Parser creation is included. Not a unit test,
+ * run it with the test classpath:
+ *
+ * java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.researchgraph.crossref.DateDeserializerBenchmark [documents] [rounds]
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class DateDeserializerBenchmark {
+	private static final int DEFAULT_DOCUMENTS = 1000000;
+	private static final int DEFAULT_ROUNDS = 5;
+
+	private static final String DOCUMENT = "{\"indexed\":{\"date-parts\":[[2017,3,1]],\"date-time\":\"2017-03-01T12:00:00Z\",\"timestamp\":1488369600000},"
+			+ "\"issued\":{\"date-parts\":[[2015,6,15]]}}";
+
+	public static class Dates {
+		@JsonDeserialize(using = CrossRefDateDeserializer.class)
+		public Date indexed;
+		@JsonDeserialize(using = CrossRefDateDeserializer.class)
+		public Date issued;
+	}
+
+	public static class LegacyDates {
+		@JsonDeserialize(using = LegacyDateDeserializer.class)
+		public Date indexed;
+		@JsonDeserialize(using = LegacyDateDeserializer.class)
+		public Date issued;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int documents = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DOCUMENTS;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+		ObjectMapper mapper = new ObjectMapper();
+		ObjectReader reader = mapper.readerFor(Dates.class);
+		ObjectReader legacyReader = mapper.readerFor(LegacyDates.class);
+
+		// warm up both paths before measuring
+		run(reader, documents / 10);
+		run(legacyReader, documents / 10);
+
+		for (int round = 1; round <= rounds; ++round) {
+			report("Round " + round + " legacy", legacyReader, documents);
+			report("Round " + round + " tokens", reader, documents);
+		}
+	}
+
+	private static void report(String name, ObjectReader reader, int documents) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long started = System.nanoTime();
+		run(reader, documents);
+		long elapsed = System.nanoTime() - started;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+		System.out.println(name + ": " + documents + " documents in " + elapsed / 1000000 + " ms, "
+				+ allocated / documents + " B allocated per document");
+	}
+
+	private static long run(ObjectReader reader, int documents) throws Exception {
+		long checksum = 0;
+		for (int i = 0; i < documents; ++i) {
+			Object dates = reader.readValue(DOCUMENT);
+			checksum += dates.hashCode();
+		}
+
+		return checksum;
+	}
+}
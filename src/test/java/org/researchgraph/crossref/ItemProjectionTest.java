@@ -0,0 +1,158 @@
+package org.researchgraph.crossref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+public class ItemProjectionTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+	private static final TypeReference<Response<Item>> itemType = new TypeReference<Response<Item>>() {};
+
+	private static final String STATUS_OK = "ok";
+	private static final String MESSAGE_WORK = "work";
+
+	private static ObjectNode load() throws Exception {
+		try (InputStream is = ItemProjectionTest.class.getResourceAsStream("work.json")) {
+			return (ObjectNode) mapper.readTree(is);
+		}
+	}
+
+	private static ObjectNode message(ObjectNode response) {
+		return (ObjectNode) response.get("message");
+	}
+
+	/**
+	 * Parse the response with the full object mapping, as CrossRef.parseWork
+	 */
+	private static WorkRecord parseWork(ObjectNode response) throws Exception {
+		Response<Item> parsed = mapper.readValue(mapper.writeValueAsBytes(response), itemType);
+		return new WorkRecord().set(parsed.getMessage());
+	}
+
+	/**
+	 * Parse the response into an Item with projected fields, as CrossRef.parseWorkProjection
+	 */
+	private static WorkRecord parseProjection(ObjectNode response) throws Exception {
+		try (JsonParser p = mapper.getFactory().createParser(mapper.writeValueAsBytes(response))) {
+			Item item = ItemProjection.parseResponse(p, STATUS_OK, MESSAGE_WORK);
+			assertNotNull(item);
+			return new WorkRecord().set(item);
+		}
+	}
+
+	/**
+	 * Parse the response straight into a record, as CrossRef.parseWorkRecord
+	 */
+	private static WorkRecord parseRecord(ObjectNode response) throws Exception {
+		try (JsonParser p = mapper.getFactory().createParser(mapper.writeValueAsBytes(response))) {
+			WorkRecord record = new WorkRecord();
+			assertTrue(ItemProjection.parseResponse(p, STATUS_OK, MESSAGE_WORK, record));
+			return record;
+		}
+	}
+
+	private static void assertSameRecord(String message, WorkRecord expected, WorkRecord actual) {
+		assertEquals(message + ": doi", expected.getDoi(), actual.getDoi());
+		assertEquals(message + ": title", expected.getTitle(), actual.getTitle());
+		assertEquals(message + ": has issued", expected.hasIssued(), actual.hasIssued());
+		assertEquals(message + ": year", expected.getIssuedString(), actual.getIssuedString());
+		assertEquals(message + ": authors", expected.getAuthorCount(), actual.getAuthorCount());
+		for (int i = 0; i < expected.getAuthorCount(); ++i) {
+			WorkRecord.AuthorRecord e = expected.getAuthor(i);
+			WorkRecord.AuthorRecord a = actual.getAuthor(i);
+			assertEquals(message + ": given " + i, e.getGiven(), a.getGiven());
+			assertEquals(message + ": family " + i, e.getFamily(), a.getFamily());
+			assertEquals(message + ": suffix " + i, e.getSuffix(), a.getSuffix());
+			assertEquals(message + ": orcid " + i, e.getOrcid(), a.getOrcid());
+			assertEquals(message + ": full name " + i, e.getFullName(), a.getFullName());
+		}
+	}
+
+	private static void assertIdentical(String message, ObjectNode response) throws Exception {
+		WorkRecord expected = parseWork(response);
+		assertSameRecord(message + " (projection)", expected, parseProjection(response));
+		assertSameRecord(message + " (record)", expected, parseRecord(response));
+	}
+
+	@Test
+	public void completeWork() throws Exception {
+		ObjectNode response = load();
+		WorkRecord record = parseRecord(response);
+		assertEquals("10.1000/abc", record.getDoi());
+		assertEquals("A Test Title", record.getTitle());
+		assertEquals(2, record.getAuthorCount());
+		assertEquals("http://orcid.org/0000-0001-2345-6789", record.getAuthor(0).getOrcid());
+		assertEquals("Jr", record.getAuthor(1).getSuffix());
+
+		assertIdentical("complete", response);
+	}
+
+	@Test
+	public void missingSubtrees() throws Exception {
+		for (String field : new String[] { "title", "author", "issued", "DOI" }) {
+			ObjectNode response = load();
+			message(response).remove(field);
+			assertIdentical("missing " + field, response);
+		}
+	}
+
+	@Test
+	public void nullSubtrees() throws Exception {
+		for (String field : new String[] { "title", "author", "issued", "DOI" }) {
+			ObjectNode response = load();
+			message(response).putNull(field);
+			assertIdentical("null " + field, response);
+		}
+	}
+
+	@Test
+	public void emptySubtrees() throws Exception {
+		ObjectNode response = load();
+		message(response).putArray("title");
+		message(response).putArray("author");
+		message(response).putObject("issued");
+		assertIdentical("empty", response);
+
+		response = load();
+		message(response).putObject("issued").putArray("date-parts").addArray();
+		assertIdentical("empty date-parts", response);
+	}
+
+	@Test
+	public void authorsWithMissingAndNullFields() throws Exception {
+		ObjectNode response = load();
+		ArrayNode authors = message(response).putArray("author");
+		authors.addObject().put("family", "Only Family");
+		authors.addObject().put("given", "Only Given").putNull("family");
+		authors.addObject().putNull("given").putNull("family").putNull("suffix").putNull("ORCID");
+		authors.addObject().put("name", "Consortium").putArray("affiliation").addObject().put("name", "Uni");
+		authors.addObject().put("given", "G").put("family", "F").put("ORCID", "http://orcid.org/0000-0002-0000-0000")
+			.put("authenticated-orcid", false).putObject("unknown").putArray("nested").add(1);
+		assertIdentical("authors", response);
+	}
+
+	@Test
+	public void titleAndIssuedVariants() throws Exception {
+		ObjectNode response = load();
+		message(response).putArray("title").addNull().add("Second");
+		assertIdentical("null first title", response);
+
+		response = load();
+		message(response).putObject("issued").putArray("date-parts").addArray().add(2015);
+		assertIdentical("year only", response);
+
+		response = load();
+		message(response).putObject("issued").put("date-time", "2016-01-02T03:04:05Z").put("timestamp", 1451703845000L);
+		assertIdentical("issued timestamp", response);
+	}
+}
@@ -0,0 +1,142 @@
+package org.researchgraph.crossref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class UnknownPropertiesTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private static final String WORK = "{\"DOI\":\"10.1000/abc\",\"title\":[\"Title\"],\"new-field\":{\"nested\":[1,2]},"
+			+ "\"author\":[{\"given\":\"Jane\",\"family\":\"Doe\",\"new-author-field\":1},{\"family\":\"Roe\",\"new-author-field\":2}],"
+			+ "\"other-field\":\"value\"}";
+
+	@Before
+	public void setUp() {
+		UnknownProperties.setStrict(false);
+		UnknownProperties.reset();
+	}
+
+	@After
+	public void tearDown() {
+		UnknownProperties.setStrict(false);
+		UnknownProperties.reset();
+	}
+
+	@Test
+	public void countsPerClassAndProperty() throws Exception {
+		Item item = mapper.readValue(WORK, Item.class);
+		assertEquals("10.1000/abc", item.getDoi());
+		assertEquals(2, item.getAuthor().size());
+
+		Map<String, Long> counters = UnknownProperties.snapshot();
+		assertEquals(3, counters.size());
+		assertEquals(Long.valueOf(1), counters.get("Item.new-field"));
+		assertEquals(Long.valueOf(1), counters.get("Item.other-field"));
+		assertEquals(Long.valueOf(2), counters.get("Author.new-author-field"));
+		assertEquals(4, UnknownProperties.total());
+
+		mapper.readValue(WORK, Item.class);
+		assertEquals(Long.valueOf(4), UnknownProperties.snapshot().get("Author.new-author-field"));
+		assertEquals(8, UnknownProperties.total());
+	}
+
+	@Test
+	public void strictModeFailsOnUnknownProperty() throws Exception {
+		UnknownProperties.setStrict(true);
+		assertTrue(UnknownProperties.isStrict());
+
+		try {
+			mapper.readValue(WORK, Item.class);
+			fail("Unknown property accepted in strict mode");
+		} catch (JsonMappingException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+			assertEquals("Unknown Item property: new-field", e.getCause().getMessage());
+		}
+
+		// known properties still parse in strict mode
+		Item item = mapper.readValue("{\"DOI\":\"10.1000/abc\",\"author\":[{\"given\":\"Jane\",\"family\":\"Doe\"}]}", Item.class);
+		assertEquals("10.1000/abc", item.getDoi());
+		assertEquals(0, UnknownProperties.total());
+	}
+
+	@Test
+	public void concurrentCounting() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> results = new ArrayList<Future<?>>();
+			for (int t = 0; t < 8; ++t) {
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; ++i) {
+						UnknownProperties.handle(Item.class, "field-" + (i % 10));
+						UnknownProperties.handle(Author.class, "field");
+					}
+				}));
+			}
+
+			for (Future<?> result : results)
+				result.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Map<String, Long> counters = UnknownProperties.snapshot();
+		assertEquals(11, counters.size());
+		assertEquals(Long.valueOf(800), counters.get("Item.field-0"));
+		assertEquals(Long.valueOf(8000), counters.get("Author.field"));
+		assertEquals(16000, UnknownProperties.total());
+	}
+
+	@Test
+	public void mxBeanReport() throws Exception {
+		mapper.readValue(WORK, Item.class);
+
+		UnknownPropertiesMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+				new ObjectName("org.researchgraph.crossref:type=UnknownProperties"), UnknownPropertiesMXBean.class);
+
+		assertEquals(UnknownProperties.snapshot(), bean.getCounters());
+		assertEquals(4, bean.getTotal());
+		assertFalse(bean.isStrictMode());
+
+		UnknownProperties.setStrict(true);
+		assertTrue(bean.isStrictMode());
+	}
+
+	@Test
+	public void summary() throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		UnknownProperties.printSummary(new PrintStream(output, true));
+		assertEquals("", output.toString());
+
+		mapper.readValue(WORK, Item.class);
+		UnknownProperties.printSummary(new PrintStream(output, true));
+
+		String[] lines = output.toString().split("\\r?\\n");
+		assertEquals(4, lines.length);
+		assertEquals("Warning. Ignored 4 unknown properties:", lines[0]);
+		assertEquals("  Author.new-author-field: 2", lines[1]);
+		assertEquals("  Item.new-field: 1", lines[2]);
+		assertEquals("  Item.other-field: 1", lines[3]);
+	}
+}
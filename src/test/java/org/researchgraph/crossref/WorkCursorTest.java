@@ -0,0 +1,131 @@
+package org.researchgraph.crossref;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class WorkCursorTest {
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Serves pages of the given sizes, numbered from 0, and records how much of every page has been read
+	 */
+	private static class Pages implements WorkCursor.PageLoader {
+		private final int[] sizes;
+		private final long total;
+		private final Map<String, Page> opened = new ConcurrentHashMap<String, Page>();
+
+		public Pages(int... sizes) {
+			this.sizes = sizes;
+
+			long total = 0;
+			for (int size : sizes)
+				total += size;
+			this.total = total;
+		}
+
+		@Override
+		public InputStream load(String cursor) throws IOException {
+			int page = WorkCursor.CURSOR_START.equals(cursor) ? 0 : Integer.parseInt(cursor);
+			if (page >= sizes.length)
+				return null;
+
+			StringBuilder json = new StringBuilder("{\"status\":\"ok\",\"message\":{\"next-cursor\":\"" + (page + 1)
+					+ "\",\"total-results\":" + total + ",\"items\":[");
+			for (int i = 0; i < sizes[page]; ++i)
+				json.append(i > 0 ? "," : "").append("{\"DOI\":\"10.1/").append(page).append('-').append(i)
+					.append("\",\"title\":[\"Title\"],\"unknown\":{\"nested\":[1,2]}}");
+			json.append("],\"items-per-page\":").append(sizes[page]).append("}}");
+
+			Page stream = new Page(json.toString().getBytes(StandardCharsets.UTF_8));
+			opened.put(cursor, stream);
+			return stream;
+		}
+	}
+
+	private static class Page extends ByteArrayInputStream {
+		private volatile boolean closed;
+
+		public Page(byte[] bytes) {
+			super(bytes);
+		}
+
+		public synchronized int getRead() {
+			return pos;
+		}
+
+		@Override
+		public void close() throws IOException {
+			closed = true;
+		}
+	}
+
+	private static WorkCursor<String> cursor(Pages pages) {
+		return new WorkCursor<String>(mapper.getFactory(), pages, p -> mapper.readValue(p, Item.class).getDoi(), 2);
+	}
+
+	@Test
+	public void iteratesAllPagesInOrder() throws Exception {
+		Pages pages = new Pages(2, 2, 1);
+
+		List<String> dois = new ArrayList<String>();
+		try (WorkCursor<String> cursor = cursor(pages)) {
+			while (cursor.hasNext())
+				dois.add(cursor.next());
+
+			assertEquals(5, cursor.getTotalResults());
+		}
+
+		List<String> expected = new ArrayList<String>();
+		for (String doi : new String[] { "0-0", "0-1", "1-0", "1-1", "2-0" })
+			expected.add("10.1/" + doi);
+		assertEquals(expected, dois);
+
+		for (Page page : pages.opened.values())
+			assertTrue(page.closed);
+	}
+
+	@Test
+	public void prefetchedPageIsNotReadAhead() throws Exception {
+		Pages pages = new Pages(2, 2);
+
+		try (WorkCursor<String> cursor = cursor(pages)) {
+			assertEquals("10.1/0-0", cursor.next());
+
+			// the next page is requested while the first one is consumed, but its body is not read yet
+			for (int wait = 0; !pages.opened.containsKey("1") && wait < 100; ++wait)
+				Thread.sleep(10);
+			assertTrue(pages.opened.containsKey("1"));
+			assertEquals(0, pages.opened.get("1").getRead());
+		}
+	}
+
+	@Test
+	public void closeReleasesPrefetchedPage() throws Exception {
+		Pages pages = new Pages(2, 2, 2);
+
+		WorkCursor<String> cursor = cursor(pages);
+		assertEquals("10.1/0-0", cursor.next());
+		for (int wait = 0; !pages.opened.containsKey("1") && wait < 100; ++wait)
+			Thread.sleep(10);
+
+		cursor.close();
+		assertFalse(cursor.hasNext());
+		assertTrue(pages.opened.get(WorkCursor.CURSOR_START).closed);
+		assertTrue(pages.opened.get("1").closed);
+		assertFalse(pages.opened.containsKey("2"));
+	}
+}
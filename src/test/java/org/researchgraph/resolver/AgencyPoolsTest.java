@@ -0,0 +1,45 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+public class AgencyPoolsTest {
+	@Test
+	public void abandonReleasesDroppedTasks() throws Exception {
+		try (AgencyPools pools = new AgencyPools()) {
+			AgencyPools.Lane lane = pools.lane("DataCite");
+
+			CountDownLatch started = new CountDownLatch(1);
+			CountDownLatch never = new CountDownLatch(1);
+			lane.submit(() -> {
+				started.countDown();
+				never.await();
+			});
+			for (int i = 0; i < 10; ++i)
+				lane.submit(() -> { });
+
+			started.await();
+			assertEquals(11, lane.getPending());
+
+			// the running task is interrupted, the queued ones are dropped
+			assertEquals(11, pools.abandon());
+			assertEquals(0, lane.getPending());
+			assertTrue(lane.drain(100));
+			assertTrue(pools.drain(100));
+
+			// an abandoned lane rejects new tasks without holding their capacity
+			try {
+				lane.submit(() -> { });
+				fail("Abandoned lane has accepted a task");
+			} catch (RejectedExecutionException e) {
+			}
+			assertEquals(0, lane.getPending());
+		}
+	}
+}
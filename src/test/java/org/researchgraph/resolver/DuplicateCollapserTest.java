@@ -0,0 +1,72 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class DuplicateCollapserTest {
+	private static final String[] DOIS = { "10.1/a", "10.1/b", "10.1/a", "10.1/c", "10.1/b", "10.1/a", "10.1/d" };
+
+	private static long count(Iterator<DuplicateCollapser.Group> groups) {
+		long count = 0;
+		for (; groups.hasNext(); groups.next())
+			++count;
+
+		return count;
+	}
+
+	@Test
+	public void countsDuplicatesInMemory() throws Exception {
+		try (DuplicateCollapser collapser = new DuplicateCollapser(100, null)) {
+			for (int i = 0; i < DOIS.length; ++i)
+				collapser.add(i + 1, DOIS[i]);
+
+			assertEquals(7, collapser.getRows());
+			assertEquals(3, collapser.getDuplicates());
+
+			Iterator<DuplicateCollapser.Group> groups = collapser.groups();
+			DuplicateCollapser.Group group = groups.next();
+			assertEquals("10.1/a", group.getDoi());
+			assertArrayEquals(new long[] { 1, 3, 6 }, group.getIds());
+			assertEquals(4, 1 + count(groups));
+
+			assertEquals(4, collapser.getDois());
+			assertEquals(3, collapser.getDuplicates());
+		}
+	}
+
+	@Test
+	public void countsDuplicatesAcrossRuns() throws Exception {
+		// every row is spilled into a run of its own, so duplicates are only found while merging
+		try (DuplicateCollapser collapser = new DuplicateCollapser(1, null)) {
+			for (int i = 0; i < DOIS.length; ++i)
+				collapser.add(i + 1, DOIS[i]);
+
+			assertEquals(0, collapser.getDuplicates());
+
+			assertEquals(4, count(collapser.groups()));
+			assertEquals(4, collapser.getDois());
+			assertEquals(3, collapser.getDuplicates());
+			assertEquals(collapser.getRows() - collapser.getDois(), collapser.getDuplicates());
+		}
+	}
+
+	@Test
+	public void countsDuplicatesInMemoryAndAcrossRuns() throws Exception {
+		try (DuplicateCollapser collapser = new DuplicateCollapser(3, null)) {
+			for (int i = 0; i < DOIS.length; ++i)
+				collapser.add(i + 1, DOIS[i]);
+
+			Iterator<DuplicateCollapser.Group> groups = collapser.groups();
+			DuplicateCollapser.Group group = groups.next();
+			assertEquals("10.1/a", group.getDoi());
+			assertArrayEquals(new long[] { 1, 3, 6 }, group.getIds());
+			assertEquals(4, 1 + count(groups));
+
+			assertEquals(3, collapser.getDuplicates());
+		}
+	}
+}
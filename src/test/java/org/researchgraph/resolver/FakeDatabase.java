@@ -0,0 +1,317 @@
+package org.researchgraph.resolver;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+/**
+ * In-memory stand-in for the resolution tables, serving the statements of {@link MySqlSink}.
+ *
+ * Generated keys follow MySQL Connector/J: every affected row yields a key, counted up from 
+ * LAST_INSERT_ID, so a row updated by ON DUPLICATE KEY UPDATE yields two keys in a batch.
+ *
+ * @author Dima Kudriavcev, dmitrij@kudriavcev.info
+ *
+ */
+public class FakeDatabase implements DataSource {
+	private static final Pattern UNRESOLVED = Pattern.compile("^select id, doi from doi_resolution where id > (\\d+)");
+
+	private final Map<String, Long> works = new LinkedHashMap<String, Long>();
+	private final Map<Long, List<String>> authors = new HashMap<Long, List<String>>();
+	private final Set<Long> resolved = new HashSet<Long>();
+	private final Set<Long> invalid = new HashSet<Long>();
+	private final List<String> executed = new ArrayList<String>();
+	private long nextId = 1;
+
+	/**
+	 * Add an existing row
+	 * @param doi DOI
+	 * @param authorNames full names of existing authors
+	 * @return row id
+	 */
+	public synchronized long addWork(String doi, String... authorNames) {
+		long id = nextId++;
+		works.put(doi, id);
+		
+		List<String> list = new ArrayList<String>();
+		for (String name : authorNames)
+			list.add(name);
+		authors.put(id, list);
+		
+		return id;
+	}
+
+	public synchronized Long getId(String doi) {
+		return works.get(doi);
+	}
+
+	/**
+	 * @return true if the row has been written as resolved
+	 */
+	public synchronized boolean isResolved(long id) {
+		return resolved.contains(id);
+	}
+
+	public synchronized boolean isInvalid(long id) {
+		return invalid.contains(id);
+	}
+
+	/**
+	 * @return SQL executed with plain statements, as by {@link LoadDataWriter}
+	 */
+	public synchronized List<String> getExecuted() {
+		return new ArrayList<String>(executed);
+	}
+
+	public synchronized List<String> getAuthors(String doi) {
+		Long id = works.get(doi);
+		List<String> list = null == id ? null : authors.get(id);
+		return null == list ? new ArrayList<String>() : list;
+	}
+
+	@Override
+	public Connection getConnection() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "prepareStatement":
+						return new Statement((String) args[0]).proxy();
+					case "createStatement":
+						return plainStatement();
+					case "isClosed":
+					case "getAutoCommit":
+						return false;
+					case "isValid":
+						return true;
+					default:
+						return null;
+					}
+				});
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) {
+		return getConnection();
+	}
+
+	/**
+	 * Prepared statement, which executes against the maps
+	 */
+	private class Statement {
+		private final String sql;
+		private final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+		private final List<Map<Integer, Object>> batch = new ArrayList<Map<Integer, Object>>();
+		private final List<Long> keys = new ArrayList<Long>();
+
+		public Statement(String sql) {
+			this.sql = sql;
+		}
+
+		public PreparedStatement proxy() {
+			InvocationHandler handler = (proxy, method, args) -> {
+				switch (method.getName()) {
+				case "setString":
+				case "setLong":
+				case "setInt":
+				case "setObject":
+					parameters.put((Integer) args[0], args[1]);
+					return null;
+				case "setNull":
+					parameters.put((Integer) args[0], null);
+					return null;
+				case "addBatch":
+					batch.add(new HashMap<Integer, Object>(parameters));
+					return null;
+				case "clearBatch":
+					batch.clear();
+					return null;
+				case "executeUpdate":
+					keys.clear();
+					return execute(parameters);
+				case "executeBatch":
+					keys.clear();
+					int[] counts = new int[batch.size()];
+					for (int i = 0; i < counts.length; ++i)
+						counts[i] = execute(batch.get(i));
+					batch.clear();
+					return counts;
+				case "getGeneratedKeys":
+					return keys(keys);
+				case "executeQuery":
+					return rows(new ArrayList<Object[]>());
+				default:
+					return null;
+				}
+			};
+			
+			return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), 
+					new Class<?>[] { PreparedStatement.class }, handler);
+		}
+
+		private int execute(Map<Integer, Object> row) {
+			synchronized (FakeDatabase.this) {
+				if (sql.startsWith("INSERT INTO doi_resolution")) {
+					String doi = (String) row.get(1);
+					Long id = works.get(doi);
+					if (null != id && sql.contains("ON DUPLICATE KEY UPDATE")) {
+						resolved.add(id);
+						keys.add(id);
+						keys.add(id + 1);
+						return 2;
+					}
+					
+					id = nextId++;
+					works.put(doi, id);
+					resolved.add(id);
+					keys.add(id);
+					return 1;
+				}
+				
+				if (sql.startsWith("UPDATE doi_resolution SET url")) {
+					if (!works.containsValue(row.get(4)))
+						return 0;
+					
+					resolved.add((Long) row.get(4));
+					return 1;
+				}
+				
+				if (sql.startsWith("UPDATE doi_resolution SET invalid=1")) {
+					invalid.add((Long) row.get(1));
+					return 1;
+				}
+				
+				if (sql.startsWith("DELETE FROM doi_author")) {
+					List<String> list = authors.remove(row.get(1));
+					return null == list ? 0 : list.size();
+				}
+				
+				if (sql.startsWith("INSERT INTO doi_author")) {
+					authors.computeIfAbsent((Long) row.get(1), k -> new ArrayList<String>()).add((String) row.get(2));
+					return 1;
+				}
+				
+				return 1;
+			}
+		}
+	}
+
+	/**
+	 * Statement, which only records executed SQL
+	 */
+	private java.sql.Statement plainStatement() {
+		return (java.sql.Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { java.sql.Statement.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "execute":
+					case "executeUpdate":
+					case "executeQuery":
+						String sql = (String) args[0];
+						synchronized (FakeDatabase.this) {
+							executed.add(sql);
+						}
+						if ("execute".equals(method.getName()))
+							return false;
+						if ("executeUpdate".equals(method.getName()))
+							return 0;
+						return query(sql);
+					case "close":
+						return null;
+					default:
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * Serve the query of unresolved rows after an id, as read by {@link Resolver}
+	 */
+	private synchronized ResultSet query(String sql) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		Matcher matcher = UNRESOLVED.matcher(sql);
+		if (matcher.find()) {
+			long after = Long.parseLong(matcher.group(1));
+			for (Map.Entry<String, Long> work : works.entrySet()) {
+				long id = work.getValue();
+				if (id > after && !resolved.contains(id) && !invalid.contains(id))
+					rows.add(new Object[] { id, work.getKey() });
+			}
+		}
+
+		return rows(rows);
+	}
+
+	private static ResultSet keys(List<Long> keys) {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		for (Long key : keys)
+			rows.add(new Object[] { key });
+
+		return rows(rows);
+	}
+
+	private static ResultSet rows(List<Object[]> rows) {
+		int[] position = { -1 };
+		return (ResultSet) Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "next":
+						return ++position[0] < rows.size();
+					case "getLong":
+						return ((Number) rows.get(position[0])[(Integer) args[0] - 1]).longValue();
+					case "getString":
+						return (String) rows.get(position[0])[(Integer) args[0] - 1];
+					default:
+						return null;
+					}
+				});
+	}
+
+	@Override
+	public PrintWriter getLogWriter() {
+		return null;
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) {
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) {
+	}
+
+	@Override
+	public int getLoginTimeout() {
+		return 0;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		throw new SQLException("Not a wrapper");
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) {
+		return false;
+	}
+}
@@ -0,0 +1,80 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.researchgraph.crossref.WorkRecord;
+
+public class LoadDataWriterTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static WorkRecord work(String doi) {
+		WorkRecord work = new WorkRecord();
+		work.setDoi(doi);
+		work.setTitle("Title of " + doi);
+		work.addAuthor().set("Jane", "Doe", null, null);
+		return work;
+	}
+
+	private static int indexOf(List<String> executed, String prefix) {
+		for (int i = 0; i < executed.size(); ++i)
+			if (executed.get(i).startsWith(prefix))
+				return i;
+
+		return -1;
+	}
+
+	@Test
+	public void flushesByAgeWithoutFurtherWorks() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		File temp = folder.newFolder();
+
+		try (LoadDataWriter writer = new LoadDataWriter(db.getConnection(), WriteMode.UPSERT, 100, 50, temp)) {
+			writer.add(null, "10.1/a", work("10.1/a"));
+			assertEquals(0, writer.getFlushed());
+
+			for (int wait = 0; 0 == writer.getFlushed() && wait < 200; ++wait)
+				Thread.sleep(10);
+
+			assertEquals(1, writer.getFlushed());
+			assertTrue(indexOf(db.getExecuted(), "LOAD DATA LOCAL INFILE") >= 0);
+			assertEquals(0, temp.list().length);
+		}
+	}
+
+	@Test
+	public void flushesBySizeOnlyWithoutDelay() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+
+		LoadDataWriter writer = new LoadDataWriter(db.getConnection(), WriteMode.UPSERT, 100, 0, folder.newFolder());
+		writer.add(null, "10.1/a", work("10.1/a"));
+		Thread.sleep(100);
+		assertEquals(0, writer.getFlushed());
+
+		writer.close();
+		assertEquals(1, writer.getFlushed());
+	}
+
+	@Test
+	public void updateLinksAuthorsOnlyToExistingRows() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+
+		try (LoadDataWriter writer = new LoadDataWriter(db.getConnection(), WriteMode.UPDATE, 100, 0, folder.newFolder())) {
+			writer.add(7L, "10.1/a", work("10.1/a"));
+		}
+
+		// works of deleted source rows are dropped before the update and before authors are linked
+		List<String> executed = db.getExecuted();
+		int dropped = indexOf(executed, "DELETE w FROM load_work w LEFT JOIN doi_resolution d");
+		assertTrue(dropped >= 0);
+		assertTrue(dropped < indexOf(executed, "UPDATE doi_resolution d JOIN load_work w"));
+		assertTrue(dropped < indexOf(executed, "INSERT INTO doi_author"));
+	}
+}
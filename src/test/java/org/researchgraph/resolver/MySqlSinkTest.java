@@ -0,0 +1,90 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.researchgraph.crossref.WorkRecord;
+
+public class MySqlSinkTest {
+
+	private static WorkRecord work(String doi, String... authors) {
+		WorkRecord work = new WorkRecord();
+		work.setDoi(doi);
+		work.setTitle("Title of " + doi);
+		for (String author : authors) 
+			work.addAuthor().set(author, null, null, null);
+		
+		return work;
+	}
+	
+	@Test
+	public void upsertBatchMixingNewAndExistingDois() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		long a = db.addWork("10.1/a", "Old A");
+		long c = db.addWork("10.1/c", "Old C");
+		
+		try (MySqlSink sink = new MySqlSink(db, WriteMode.UPSERT, 10)) {
+			sink.saveWork(null, "10.1/a", work("10.1/a", "A1", "A2"));
+			sink.saveWork(null, "10.1/b", work("10.1/b", "B1"));
+			sink.saveWork(null, "10.1/c", work("10.1/c", "C1"));
+			sink.saveWork(null, "10.1/d", work("10.1/d", "D1", "D2"));
+		}
+		
+		assertEquals(Long.valueOf(a), db.getId("10.1/a"));
+		assertEquals(Long.valueOf(c), db.getId("10.1/c"));
+		assertEquals(Arrays.asList("A1", "A2"), db.getAuthors("10.1/a"));
+		assertEquals(Arrays.asList("B1"), db.getAuthors("10.1/b"));
+		assertEquals(Arrays.asList("C1"), db.getAuthors("10.1/c"));
+		assertEquals(Arrays.asList("D1", "D2"), db.getAuthors("10.1/d"));
+	}
+	
+	@Test
+	public void upsertMarksEveryRowOfDuplicateGroup() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		// source rows holding the same DOI in other forms, without the canonical row
+		long url = db.addWork("https://doi.org/10.1/A");
+		long prefixed = db.addWork("doi:10.1/a");
+		long other = db.addWork("10.1/x");
+		// the canonical row exists for the second group
+		long canonical = db.addWork("10.1/b", "Old B");
+		long duplicate = db.addWork("DOI:10.1/B");
+		
+		try (MySqlSink sink = new MySqlSink(db, WriteMode.UPSERT, 10)) {
+			sink.saveWorkForRows(new long[] { url, prefixed }, "10.1/a", work("10.1/a", "A1"));
+			sink.saveWorkForRows(new long[] { canonical, duplicate }, "10.1/b", work("10.1/b", "B1"));
+		}
+		
+		assertTrue(db.isResolved(url));
+		assertTrue(db.isResolved(prefixed));
+		assertTrue(db.isResolved(canonical));
+		assertTrue(db.isResolved(duplicate));
+		assertFalse(db.isResolved(other));
+		
+		// the work is written once on its canonical DOI, with its authors
+		assertTrue(db.isResolved(db.getId("10.1/a")));
+		assertEquals(Arrays.asList("A1"), db.getAuthors("10.1/a"));
+		assertEquals(Long.valueOf(canonical), db.getId("10.1/b"));
+		assertEquals(Arrays.asList("B1"), db.getAuthors("10.1/b"));
+		assertEquals(new ArrayList<String>(), db.getAuthors("doi:10.1/a"));
+	}
+	
+	@Test
+	public void insertBatchKeepsKeysInOrder() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		
+		try (MySqlSink sink = new MySqlSink(db, WriteMode.INSERT, 2)) {
+			sink.saveWork(null, "10.1/a", work("10.1/a", "A1"));
+			sink.saveWork(null, "10.1/b", work("10.1/b", "B1", "B2"));
+			sink.saveWork(null, "10.1/c", work("10.1/c", "C1"));
+		}
+		
+		assertEquals(Arrays.asList("A1"), db.getAuthors("10.1/a"));
+		assertEquals(Arrays.asList("B1", "B2"), db.getAuthors("10.1/b"));
+		assertEquals(Arrays.asList("C1"), db.getAuthors("10.1/c"));
+	}
+}
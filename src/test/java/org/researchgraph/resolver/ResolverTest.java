@@ -0,0 +1,94 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.researchgraph.crossref.WorkRecord;
+
+public class ResolverTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Sink, which fails to flush while requested
+	 */
+	private static class FailingSink implements ResolutionSink {
+		private final ResolutionSink sink;
+		private volatile boolean failing;
+
+		public FailingSink(ResolutionSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void saveAuthority(String doi, String authority) throws IOException {
+			sink.saveAuthority(doi, authority);
+		}
+
+		@Override
+		public void saveWork(Long resolutionId, String doi, WorkRecord work) throws IOException {
+			sink.saveWork(resolutionId, doi, work);
+		}
+
+		@Override
+		public void saveInvalid(long resolutionId, String doi) throws IOException {
+			sink.saveInvalid(resolutionId, doi);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			if (failing)
+				throw new IOException("Database is not available");
+			sink.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			sink.close();
+		}
+	}
+
+	private static String lastQuery(FakeDatabase db) {
+		List<String> executed = db.getExecuted();
+		return executed.get(executed.size() - 1);
+	}
+
+	@Test
+	public void watermarkMovesOnlyAfterSuccessfulFlush() throws Exception {
+		FakeDatabase db = new FakeDatabase();
+		long first = db.addWork("not a doi");
+		long second = db.addWork("also not a doi");
+
+		try (FailingSink sink = new FailingSink(new MySqlSink(db, WriteMode.UPSERT, 10));
+				Resolver resolver = new Resolver(folder.newFolder().getPath(), db, sink)) {
+			sink.failing = true;
+			try {
+				resolver.resolveDOI();
+				fail("Failed flush has not been reported");
+			} catch (IOException e) {
+				assertEquals("Database is not available", e.getMessage());
+			}
+			assertEquals(0, resolver.getWatermark());
+
+			// the failed cycle is read again from the previous watermark
+			sink.failing = false;
+			resolver.resolveDOI();
+			assertTrue(lastQuery(db).contains("where id > 0 "));
+			assertEquals(second, resolver.getWatermark());
+			assertTrue(db.isInvalid(first));
+			assertTrue(db.isInvalid(second));
+
+			long third = db.addWork("still not a doi");
+			resolver.resolveDOI();
+			assertTrue(lastQuery(db).contains("where id > " + second + " "));
+			assertEquals(third, resolver.getWatermark());
+		}
+	}
+}
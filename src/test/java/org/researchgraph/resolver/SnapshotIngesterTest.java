@@ -0,0 +1,35 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.researchgraph.crossref.CrossRef;
+import org.researchgraph.crossref.Item;
+
+public class SnapshotIngesterTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void cachesWorksUnderCanonicalDoi() throws Exception {
+		File snapshot = folder.newFolder();
+		Files.write(new File(snapshot, "0.json").toPath(), 
+				"{\"items\":[{\"DOI\":\"10.1000/ABC\",\"title\":[\"Title\"]},{\"DOI\":\"not a doi\"}]}"
+					.getBytes(StandardCharsets.UTF_8));
+
+		CrossRef crossref = new CrossRef(folder.newFolder().getPath());
+		assertEquals(2, new SnapshotIngester(crossref, null, 1).ingest(snapshot.toPath()));
+
+		// the resolver requests works by the canonical DOI
+		Item item = crossref.requestCachedWork(DoiNormalizer.normalize("10.1000/ABC"));
+		assertNotNull(item);
+		assertEquals("10.1000/ABC", item.getDoi());
+	}
+}
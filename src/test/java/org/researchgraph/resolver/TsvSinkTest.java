@@ -0,0 +1,67 @@
+package org.researchgraph.resolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.researchgraph.crossref.WorkRecord;
+
+public class TsvSinkTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static WorkRecord work(String doi, String title, String... names) {
+		WorkRecord work = new WorkRecord();
+		work.setDoi(doi);
+		work.setTitle(title);
+		for (int i = 0; i < names.length; i += 2)
+			work.addAuthor().set(names[i], names[i + 1], null, null);
+
+		return work;
+	}
+
+	private static List<String> read(Path folder, String file) throws Exception {
+		return Files.readAllLines(folder.resolve(file), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void closeWritesBufferedRows() throws Exception {
+		Path output = folder.getRoot().toPath().resolve("tsv");
+
+		// the batch is never full, so rows are only written when the sink is closed
+		TsvSink sink = new TsvSink(output, 1000);
+		sink.saveAuthority("10.1/a", "CrossRef");
+		sink.saveWork(7L, "10.1/a", work("10.1/a", "Title A", "Jane", "Doe", "John", "Roe"));
+		sink.saveWork(null, "10.1/b", work("10.1/b", "Title é", "Ann", "Poe"));
+		sink.saveWork(8L, "10.1/c", work("10.1/c", null));
+		sink.saveInvalid(9, "not a doi");
+		sink.close();
+
+		List<String> authorities = read(output, TsvSink.FILE_AUTHORITY);
+		assertEquals(1, authorities.size());
+		assertTrue(authorities.get(0).startsWith("10.1/a\tCrossRef\t"));
+
+		List<String> works = read(output, TsvSink.FILE_RESOLUTION);
+		assertEquals(2, works.size());
+		assertTrue(works.get(0).startsWith("7\t10.1/a\t"));
+		assertTrue(works.get(0).contains("\tTitle A\t"));
+		assertTrue(works.get(1).startsWith("-1\t10.1/b\t"));
+		assertTrue(works.get(1).contains("\tTitle é\t"));
+
+		List<String> authors = read(output, TsvSink.FILE_AUTHOR);
+		assertEquals(3, authors.size());
+		assertTrue(authors.get(0).startsWith("7\tJane\tDoe\t"));
+		assertTrue(authors.get(1).startsWith("7\tJohn\tRoe\t"));
+		// works without source row are linked to their authors by a negative local id
+		assertTrue(authors.get(2).startsWith("-1\tAnn\tPoe\t"));
+
+		assertEquals(1, read(output, TsvSink.FILE_INVALID).size());
+	}
+}